@@ -0,0 +1,262 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apfloat.Apfloat;
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatMath;
+import org.apfloat.internal.DoubleBuilderFactory;
+import org.apfloat.internal.FloatBuilderFactory;
+import org.apfloat.internal.IntBuilderFactory;
+import org.apfloat.internal.LongBuilderFactory;
+import org.apfloat.spi.BuilderFactory;
+
+// Benchmarks for the e engines and the core apfloat operations. Every benchmark runs
+// a number of warmup iterations and then measured iterations, and the operands are
+// generated from a fixed seed, so the results of two runs can be compared directly.
+public class EBenchmark {
+
+    interface Benchmark {
+        void run();
+    }
+
+    static class Result {
+        String name;
+        long size;
+        double[] millis;
+
+        double mean() {
+            double sum = 0;
+            for (double m : millis) {
+                sum += m;
+            }
+            return sum / millis.length;
+        }
+
+        double stddev() {
+            double mean = mean();
+            double sum = 0;
+            for (double m : millis) {
+                sum += (m - mean) * (m - mean);
+            }
+            return (millis.length > 1 ? Math.sqrt(sum / (millis.length - 1)) : 0);
+        }
+
+        double min() {
+            double min = Double.MAX_VALUE;
+            for (double m : millis) {
+                min = Math.min(min, m);
+            }
+            return min;
+        }
+    }
+
+    static int warmups = 3;
+    static int iterations = 5;
+    static long maxDigits = 100000;
+    static long maxThreadsDigits = 10000;
+    static Pattern filter = Pattern.compile(".*");
+    static String factory;
+    static String[] factoryNames = { "int", "long", "double", "float" };
+    static String[] args;
+
+    public static void main(String[] args) {
+        EBenchmark.args = args;
+        Options options = new Options();
+        options.addOption("w", "warmups", true, "warmup iterations per benchmark (default 3)");
+        options.addOption("i", "iterations", true, "measured iterations per benchmark (default 5)");
+        options.addOption("m", "max-digits", true, "largest size in digits, sizes are powers of ten from 1000 (default 100000)");
+        options.addOption(null, "max-threads-digits", true, "largest size for the eThread engine (default 10000)");
+        options.addOption("f", "factory", true, "int, long, double, float or intvector: benchmark the operations with this builder factory only, in this JVM");
+        options.addOption("b", "benchmarks", true, "regular expression for the benchmark names to run");
+        options.addOption("h", "help", false, "print this message");
+        CommandLineParser parser = new DefaultParser();
+        try {
+            CommandLine line = parser.parse(options, args);
+            if (line.hasOption("h")) {
+                new HelpFormatter().printHelp("EBenchmark", options);
+                return;
+            }
+            warmups = Integer.parseInt(line.getOptionValue("w", Integer.toString(warmups)));
+            iterations = Integer.parseInt(line.getOptionValue("i", Integer.toString(iterations)));
+            maxDigits = Long.parseLong(line.getOptionValue("m", Long.toString(maxDigits)));
+            maxThreadsDigits = Long.parseLong(line.getOptionValue("max-threads-digits", Long.toString(maxThreadsDigits)));
+            filter = Pattern.compile(line.getOptionValue("b", ".*"));
+            factory = line.getOptionValue("f");
+        } catch (ParseException exp) {
+            System.err.println("Parsing failed.  Reason: " + exp.getMessage());
+            new HelpFormatter().printHelp("EBenchmark", options);
+            System.exit(1);
+        } catch (NumberFormatException exp) {
+            System.err.println("Invalid argument: " + exp.getMessage());
+            System.exit(1);
+        }
+        if (iterations <= 0 || warmups < 0) {
+            System.err.println("ERROR: Args are not correct!!!");
+            System.exit(1);
+        }
+
+        if (factory == null) {
+            printHeader();
+            benchmarkE();
+            for (String name : factoryNames) {
+                fork(name);
+            }
+        } else {
+            benchmarkOperations(factory);
+        }
+    }
+
+    static void printHeader() {
+        System.out.println(String.format("%-32s %12s %12s %12s %12s", "Benchmark", "Digits", "Mean ms", "Stddev ms", "Min ms"));
+    }
+
+    // ApfloatMath caches constants made with the current builder factory, so every
+    // factory is benchmarked in a fresh JVM, which also gives each one the same JIT state
+    static void fork(String name) {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EBenchmark.class.getName());
+        command.addAll(Arrays.asList(args));
+        command.add("--factory");
+        command.add(name);
+        try {
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            if (process.waitFor() != 0) {
+                System.err.println("Benchmarks for " + name + " failed");
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot start JVM for " + name + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void benchmarkE() {
+        Main.quiet = true;
+        Main.report = null;
+        Main.numThreads = ApfloatContext.getContext().getNumberOfProcessors();
+        Main.radix = 10;
+        for (long digits = 1000; digits <= maxDigits; digits *= 10) {
+            final long precision = digits;
+            if (digits <= maxThreadsDigits) {
+                measure("e.threads", digits, new Benchmark() {
+                    public void run() {
+                        Main.precision = precision;
+                        Main.sumWithThreads();
+                    }
+                });
+            }
+            measure("e.binary", digits, new Benchmark() {
+                public void run() {
+                    new EBinarySplittingCalculator(precision, 10).execute();
+                }
+            });
+            measure("e.forkjoin", digits, new Benchmark() {
+                public void run() {
+                    new EForkJoinCalculator(precision, 10).execute();
+                }
+            });
+            measure("e.library", digits, new Benchmark() {
+                public void run() {
+                    // ApfloatMath caches e, so forget it to measure the whole calculation instead of a cache hit
+                    ApfloatMath.clearE(10);
+                    ApfloatMath.e(precision, 10);
+                }
+            });
+        }
+    }
+
+    static void benchmarkOperations(String name) {
+        BuilderFactory builderFactory;
+        if (name.equals("int")) {
+            builderFactory = new IntBuilderFactory();
+        } else if (name.equals("long")) {
+            builderFactory = new LongBuilderFactory();
+        } else if (name.equals("double")) {
+            builderFactory = new DoubleBuilderFactory();
+        } else if (name.equals("float")) {
+            builderFactory = new FloatBuilderFactory();
+        } else if (name.equals("intvector")) {
+            // Loaded by name, the vector package is built separately with --add-modules jdk.incubator.vector
+            try {
+                builderFactory = (BuilderFactory) Class.forName("org.apfloat.vector.IntVectorBuilderFactory").getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                System.err.println("ERROR: Cannot load the vector builder factory: " + e);
+                return;
+            }
+        } else {
+            System.err.println("ERROR: Unknown builder factory " + name);
+            return;
+        }
+        ApfloatContext.getContext().setBuilderFactory(builderFactory);
+
+        for (long digits = 1000; digits <= maxDigits; digits *= 10) {
+            final Apfloat x = randomApfloat(digits, 1);
+            final Apfloat y = randomApfloat(digits, 2);
+            final Apfloat small = randomApfloat(digits, 3).divide(new Apfloat(10, digits));
+            measure("multiply." + name, digits, new Benchmark() {
+                public void run() {
+                    x.multiply(y);
+                }
+            });
+            measure("divide." + name, digits, new Benchmark() {
+                public void run() {
+                    x.divide(y);
+                }
+            });
+            measure("exp." + name, digits, new Benchmark() {
+                public void run() {
+                    ApfloatMath.exp(small);
+                }
+            });
+            measure("toString." + name, digits, new Benchmark() {
+                public void run() {
+                    x.toString();
+                }
+            });
+        }
+    }
+
+    static void measure(String name, long size, Benchmark benchmark) {
+        if (!filter.matcher(name).matches()) {
+            return;
+        }
+        for (int i = 0; i < warmups; i++) {
+            benchmark.run();
+        }
+        Result result = new Result();
+        result.name = name;
+        result.size = size;
+        result.millis = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            System.gc();
+            long start = System.nanoTime();
+            benchmark.run();
+            result.millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        System.out.println(String.format("%-32s %12d %12.3f %12.3f %12.3f", name, size, result.mean(), result.stddev(), result.min()));
+    }
+
+    // Random number 1.xxx with the specified digits, the same for every run with the same seed
+    static Apfloat randomApfloat(long digits, long seed) {
+        Random random = new Random(seed);
+        StringBuilder buffer = new StringBuilder((int) digits + 1);
+        buffer.append("1.");
+        for (long i = 1; i < digits; i++) {
+            buffer.append((char) ('0' + random.nextInt(10)));
+        }
+        return new Apfloat(buffer.toString(), digits);
+    }
+}
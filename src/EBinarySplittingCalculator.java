@@ -0,0 +1,63 @@
+import org.apfloat.Apfloat;
+import org.apfloat.Apint;
+
+// Calculates e = sum((2k+1)/(2k)!) with binary splitting: the terms are combined as
+// exact integers T and Q over term ranges and there is exactly one division at the end.
+public class EBinarySplittingCalculator {
+
+    long precision;
+    int radix;
+    // Per-worker timings are added here if it is set
+    EReport report;
+
+    public EBinarySplittingCalculator(long precision, int radix) {
+        this.precision = precision;
+        this.radix = radix;
+    }
+
+    public Apfloat execute() {
+        return divide(sum(0, terms()));
+    }
+
+    // Evaluate T and Q for the terms [n1, n2) in the calling thread
+    public EPartialSum sum(long n1, long n2) {
+        long wallStart = System.nanoTime();
+        long cpuStart = EReport.threadCpuTime();
+        EPartialSum result = r(n1, n2);
+        if (report != null) {
+            report.addWork(n2 - n1, wallStart, cpuStart);
+        }
+        return result;
+    }
+
+    // Evaluate T and Q for the terms [n1, n2)
+    public EPartialSum r(long n1, long n2) {
+        if (n2 - n1 == 1) {
+            return new EPartialSum(n1, n2, a(n1), q(n1));
+        }
+        long nMiddle = (n1 + n2) >>> 1;
+        return r(n1, nMiddle).combine(r(nMiddle, n2));
+    }
+
+    // e = T / Q to the target precision
+    public Apfloat divide(EPartialSum sum) {
+        long workingPrecision = precision + 20;
+        return sum.t.precision(workingPrecision).divide(sum.q.precision(workingPrecision)).precision(precision);
+    }
+
+    // Number of terms needed for the precision
+    public long terms() {
+        return new ETermPlanner(precision, radix).terms();
+    }
+
+    Apint a(long k) {
+        return new Apint(2 * k + 1, radix);
+    }
+
+    Apint q(long k) {
+        if (k == 0) {
+            return new Apint(1, radix);
+        }
+        return new Apint(2 * k * (2 * k - 1), radix);
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// Evaluates the series in chunks of terms and saves the T and Q of every completed chunk
+// to a file in the checkpoint directory. A restarted run loads the chunks that are already
+// done and only evaluates the rest. T and Q of a range depend only on the range and the radix,
+// so the files are valid for any precision that uses the same chunk bounds.
+public class ECheckpointer {
+
+    File directory;
+    int chunks;
+    boolean quiet;
+
+    public ECheckpointer(File directory, int chunks, boolean quiet) {
+        this.directory = directory;
+        this.chunks = chunks;
+        this.quiet = quiet;
+    }
+
+    // Evaluate T and Q for the terms [0, terms) with the calculator, resuming from saved chunks
+    public EPartialSum sum(EBinarySplittingCalculator calculator, long terms) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create checkpoint directory " + directory);
+        }
+        int count = (int) Math.min(chunks, terms);
+        long[] bounds = new ETermPlanner(calculator.precision, calculator.radix).split(terms, count);
+        EPartialSum[] parts = new EPartialSum[count];
+        for (int i = 0; i < count; i++) {
+            File file = file(calculator.radix, bounds[i], bounds[i + 1]);
+            if (file.exists()) {
+                parts[i] = load(file);
+                if (parts[i] != null && (parts[i].n1 != bounds[i] || parts[i].n2 != bounds[i + 1])) {
+                    parts[i] = null;
+                }
+            }
+            if (parts[i] == null) {
+                parts[i] = calculator.sum(bounds[i], bounds[i + 1]);
+                save(file, parts[i]);
+            } else if (!quiet) {
+                System.out.println("Resumed terms " + bounds[i] + " to " + bounds[i + 1] + " from " + file);
+            }
+        }
+        return merge(parts, 0, count);
+    }
+
+    // Delete the checkpoint files of a finished run
+    public void clear(int radix, long terms, long precision) {
+        int count = (int) Math.min(chunks, terms);
+        long[] bounds = new ETermPlanner(precision, radix).split(terms, count);
+        for (int i = 0; i < count; i++) {
+            file(radix, bounds[i], bounds[i + 1]).delete();
+        }
+    }
+
+    File file(int radix, long n1, long n2) {
+        return new File(directory, "e-r" + radix + "-" + n1 + "-" + n2 + ".ser");
+    }
+
+    // Combine the chunks [from, to) pairwise so that the products stay balanced
+    static EPartialSum merge(EPartialSum[] parts, int from, int to) {
+        if (to - from == 1) {
+            return parts[from];
+        }
+        int middle = (from + to) >>> 1;
+        return merge(parts, from, middle).combine(merge(parts, middle, to));
+    }
+
+    // Read a saved chunk, or null if the file is incomplete or unreadable
+    EPartialSum load(File file) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                return (EPartialSum) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring checkpoint " + file + ": " + e.getMessage());
+        } catch (ClassNotFoundException e) {
+            System.err.println("Ignoring checkpoint " + file + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    // Write to a temporary file first, so that a crash never leaves a partial checkpoint
+    void save(File file, EPartialSum part) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            out.writeObject(part);
+        } finally {
+            out.close();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
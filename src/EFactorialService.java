@@ -0,0 +1,87 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.apfloat.Apint;
+import org.apfloat.ApintMath;
+
+// Shared factorial service. The factorials that a run needs are planned up front as a
+// chain of checkpoints: n_i! is n_(i-1)! times the product of the factors n_(i-1) + 1 ... n_i.
+// Each thread computes the product of its own segment concurrently, and only the final
+// multiplications are done in order, instead of every thread computing n_i! from scratch.
+public class EFactorialService {
+
+    private static ConcurrentHashMap<Integer, ConcurrentHashMap<Long, FutureTask<Apint>>> checkpoints = new ConcurrentHashMap<Integer, ConcurrentHashMap<Long, FutureTask<Apint>>>();
+
+    // Plan the checkpoints n[0]! ... n[n.length - 1]!, n must be ascending
+    public static void plan(long[] n, final int radix) {
+        ConcurrentHashMap<Long, FutureTask<Apint>> chain = new ConcurrentHashMap<Long, FutureTask<Apint>>();
+        FutureTask<Apint> previous = null;
+        long previousN = 0;
+        for (int i = 0; i < n.length; i++) {
+            if (n[i] < 0 || n[i] < previousN) {
+                throw new IllegalArgumentException("Checkpoints must be non-negative and ascending");
+            }
+            if (chain.containsKey(n[i])) {
+                continue;
+            }
+            final FutureTask<Apint> before = previous;
+            final long n1 = previousN + 1,
+                       n2 = n[i] + 1;
+            FutureTask<Apint> checkpoint = new FutureTask<Apint>(new Callable<Apint>() {
+                public Apint call() {
+                    Apint segment = (n2 > n1 ? product(n1, n2, radix) : new Apint(1, radix));
+                    return (before == null ? segment : getValue(before).multiply(segment));
+                }
+            });
+            chain.put(n[i], checkpoint);
+            previous = checkpoint;
+            previousN = n[i];
+        }
+        checkpoints.put(radix, chain);
+    }
+
+    // Evaluate n!
+    public static Apint factorial(long n, int radix) {
+        if (n < 0) {
+            throw new ArithmeticException("Factorial of negative number");
+        }
+        ConcurrentHashMap<Long, FutureTask<Apint>> chain = checkpoints.get(radix);
+        FutureTask<Apint> checkpoint = (chain == null ? null : chain.get(n));
+        if (checkpoint == null) {
+            return ApintMath.factorial(n, radix);
+        }
+        return getValue(checkpoint);
+    }
+
+    // Forget all checkpoints, called when a run finishes
+    public static void clear() {
+        checkpoints.clear();
+    }
+
+    // Evaluate n1 * (n1 + 1) * ... * (n2 - 1) with balanced products
+    static Apint product(long n1, long n2, int radix) {
+        if (n2 - n1 == 1) {
+            return new Apint(n1, radix);
+        }
+        long nMiddle = (n1 + n2) >>> 1;
+        return product(n1, nMiddle, radix).multiply(product(nMiddle, n2, radix));
+    }
+
+    // Run the checkpoint in this thread if no other thread has started it yet, so waiting never blocks on a checkpoint nobody computes
+    private static Apint getValue(FutureTask<Apint> checkpoint) {
+        checkpoint.run();
+        try {
+            return checkpoint.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
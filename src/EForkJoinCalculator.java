@@ -0,0 +1,92 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatMath;
+import org.apfloat.Apint;
+
+// Binary splitting for e where the term range is split recursively into fork/join tasks.
+// Idle workers steal subranges, and the multiplications of a merge are parallelized inside apfloat.
+public class EForkJoinCalculator extends EBinarySplittingCalculator {
+
+    // Ranges with at most this many terms are evaluated sequentially
+    long threshold;
+
+    public EForkJoinCalculator(long precision, int radix) {
+        super(precision, radix);
+    }
+
+    public EForkJoinCalculator(long precision, int radix, long threshold) {
+        super(precision, radix);
+        this.threshold = threshold;
+    }
+
+    // Evaluate T and Q for the terms [n1, n2) on the fork/join pool
+    @Override
+    public EPartialSum sum(long n1, long n2) {
+        ForkJoinPool pool = getPool();
+        long leafSize = threshold;
+        if (leafSize <= 0) {
+            leafSize = Math.max(64, (n2 - n1) / (8L * pool.getParallelism()));
+        }
+        return pool.invoke(new RangeTask(n1, n2, leafSize));
+    }
+
+    // Use the apfloat executor if it already is a fork/join pool, otherwise install one
+    // so that the series and the parallel multiplications inside apfloat share the same threads
+    static synchronized ForkJoinPool getPool() {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        ExecutorService executorService = ctx.getExecutorService();
+        if (executorService instanceof ForkJoinPool) {
+            return (ForkJoinPool) executorService;
+        }
+        ForkJoinPool pool = new ForkJoinPool(ctx.getNumberOfProcessors());
+        ctx.setExecutorService(pool);
+        return pool;
+    }
+
+    class RangeTask extends RecursiveTask<EPartialSum> {
+
+        private static final long serialVersionUID = 1L;
+
+        long n1;
+        long n2;
+        long leafSize;
+
+        RangeTask(long n1, long n2, long leafSize) {
+            this.n1 = n1;
+            this.n2 = n2;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected EPartialSum compute() {
+            if (n2 - n1 <= leafSize) {
+                long wallStart = System.nanoTime();
+                long cpuStart = EReport.threadCpuTime();
+                EPartialSum result = r(n1, n2);
+                if (report != null) {
+                    report.addWork(n2 - n1, wallStart, cpuStart);
+                }
+                return result;
+            }
+            long nMiddle = (n1 + n2) >>> 1;
+            RangeTask left = new RangeTask(n1, nMiddle, leafSize);
+            left.fork();
+            EPartialSum right = new RangeTask(nMiddle, n2, leafSize).compute();
+            EPartialSum l = left.join();
+
+            // T = LT * RQ + RT and Q = LQ * RQ are computed one after the other, so that
+            // RQ is transformed only once; it's pinned and the second product reuses its transforms
+            ApfloatMath.pin(right.q);
+            long wallStart = System.nanoTime();
+            long cpuStart = EReport.threadCpuTime();
+            Apint t = l.t.multiply(right.q).add(right.t);
+            Apint q = l.q.multiply(right.q);
+            if (report != null) {
+                report.addWork(0, wallStart, cpuStart);
+            }
+            return new EPartialSum(n1, n2, t, q);
+        }
+    }
+}
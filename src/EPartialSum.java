@@ -0,0 +1,32 @@
+import java.io.Serializable;
+import org.apfloat.ApfloatMath;
+import org.apfloat.Apint;
+
+// Partial result of the binary splitting over the term range [n1, n2).
+// The series sum((2k+1)/(2k)!) has p(k) = 1, so P is always 1 and only T and Q are kept.
+public class EPartialSum implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    long n1;
+    long n2;
+    Apint t;
+    Apint q;
+
+    public EPartialSum(long n1, long n2, Apint t, Apint q) {
+        this.n1 = n1;
+        this.n2 = n2;
+        this.t = t;
+        this.q = q;
+    }
+
+    // Merge with the partial sum of the range that directly follows this one
+    public EPartialSum combine(EPartialSum right) {
+        if (n2 != right.n1) {
+            throw new IllegalArgumentException("Ranges [" + n1 + "," + n2 + ") and [" + right.n1 + "," + right.n2 + ") are not adjacent");
+        }
+        // right.q is multiplied twice, with operands of about the same size, so its transforms are reused
+        Apint rightQ = ApfloatMath.pin(right.q);
+        return new EPartialSum(n1, right.n2, t.multiply(rightQ).add(right.t), q.multiply(rightQ));
+    }
+}
@@ -0,0 +1,151 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Wall and CPU time per phase of an e computation and per worker thread,
+// printable as text or as JSON so that runs can be compared across releases.
+public class EReport {
+
+    static class Timing {
+        String name;
+        long wallNanos;
+        long cpuNanos;
+        long terms;
+        long tasks;
+
+        Timing(String name) {
+            this.name = name;
+        }
+    }
+
+    static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    static final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+    String algorithm;
+    long precision;
+    int radix;
+    int threads;
+    List<Timing> phases = new ArrayList<Timing>();
+    Map<String, Timing> workers = new TreeMap<String, Timing>();
+
+    private Timing phase;
+    private long phaseStart;
+    private long phaseCpuStart;
+
+    public EReport(String algorithm, long precision, int radix, int threads) {
+        this.algorithm = algorithm;
+        this.precision = precision;
+        this.radix = radix;
+        this.threads = threads;
+    }
+
+    public void startPhase(String name) {
+        phase = new Timing(name);
+        phaseCpuStart = processCpuTime();
+        phaseStart = System.nanoTime();
+    }
+
+    public void endPhase() {
+        phase.wallNanos = System.nanoTime() - phaseStart;
+        phase.cpuNanos = processCpuTime() - phaseCpuStart;
+        phases.add(phase);
+        phase = null;
+    }
+
+    // Add the work of the calling thread, timed from wallStart and cpuStart
+    public void addWork(long terms, long wallStart, long cpuStart) {
+        long wall = System.nanoTime() - wallStart;
+        long cpu = threadCpuTime() - cpuStart;
+        String name = Thread.currentThread().getName();
+        synchronized (workers) {
+            Timing worker = workers.get(name);
+            if (worker == null) {
+                worker = new Timing(name);
+                workers.put(name, worker);
+            }
+            worker.wallNanos += wall;
+            worker.cpuNanos += cpu;
+            worker.terms += terms;
+            worker.tasks++;
+        }
+    }
+
+    public long totalWallNanos() {
+        long total = 0;
+        for (Timing t : phases) {
+            total += t.wallNanos;
+        }
+        return total;
+    }
+
+    public double digitsPerSecond() {
+        long total = totalWallNanos();
+        return (total == 0 ? 0 : precision * 1e9 / total);
+    }
+
+    public String toText() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("Algorithm: " + algorithm + ", " + precision + " digits in radix " + radix + ", " + threads + " threads\n");
+        buffer.append(String.format("%-24s %12s %12s%n", "Phase", "Wall ms", "CPU ms"));
+        for (Timing t : phases) {
+            buffer.append(String.format("%-24s %12.3f %12.3f%n", t.name, t.wallNanos / 1e6, t.cpuNanos / 1e6));
+        }
+        buffer.append(String.format("%-24s %12.3f%n", "Total", totalWallNanos() / 1e6));
+        buffer.append(String.format("Digits per second: %.1f%n", digitsPerSecond()));
+        synchronized (workers) {
+            if (!workers.isEmpty()) {
+                buffer.append(String.format("%-24s %12s %12s %12s %8s%n", "Worker", "Wall ms", "CPU ms", "Terms", "Tasks"));
+                for (Timing t : workers.values()) {
+                    buffer.append(String.format("%-24s %12.3f %12.3f %12d %8d%n", t.name, t.wallNanos / 1e6, t.cpuNanos / 1e6, t.terms, t.tasks));
+                }
+            }
+        }
+        return buffer.toString();
+    }
+
+    public String toJson() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("{\"algorithm\":\"" + escape(algorithm) + "\",\"precision\":" + precision + ",\"radix\":" + radix + ",\"threads\":" + threads);
+        buffer.append(",\"totalWallNanos\":" + totalWallNanos());
+        buffer.append(",\"digitsPerSecond\":" + String.format(Locale.ROOT, "%.1f", digitsPerSecond()));
+        buffer.append(",\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            Timing t = phases.get(i);
+            buffer.append(i == 0 ? "" : ",");
+            buffer.append("{\"name\":\"" + escape(t.name) + "\",\"wallNanos\":" + t.wallNanos + ",\"cpuNanos\":" + t.cpuNanos + "}");
+        }
+        buffer.append("],\"workers\":[");
+        synchronized (workers) {
+            boolean first = true;
+            for (Timing t : workers.values()) {
+                buffer.append(first ? "" : ",");
+                buffer.append("{\"name\":\"" + escape(t.name) + "\",\"wallNanos\":" + t.wallNanos + ",\"cpuNanos\":" + t.cpuNanos + ",\"terms\":" + t.terms + ",\"tasks\":" + t.tasks + "}");
+                first = false;
+            }
+        }
+        buffer.append("]}");
+        return buffer.toString();
+    }
+
+    // CPU time of the calling thread, or 0 if the JVM does not measure it
+    public static long threadCpuTime() {
+        return (threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : 0);
+    }
+
+    // CPU time of the whole process, including worker threads that have already finished
+    static long processCpuTime() {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+        }
+        return threadCpuTime();
+    }
+
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,40 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import org.apfloat.Apfloat;
+
+// Writes the digits of a result through Apfloat.writeTo, which converts them block by block
+// straight from the data storage, so the full decimal string is never built on the heap.
+public class EResultWriter {
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    // Write x to the file, followed by a line separator
+    public static void write(Apfloat x, String fileName) throws IOException {
+        FileOutputStream stream = new FileOutputStream(fileName);
+        try {
+            FileChannel channel = stream.getChannel();
+            Writer out = new BufferedWriter(Channels.newWriter(channel, "US-ASCII"), BUFFER_SIZE);
+            write(x, out);
+            out.close();
+        } finally {
+            stream.close();
+        }
+    }
+
+    // Write x to the standard output, followed by a line separator
+    public static void print(Apfloat x) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, "US-ASCII"), BUFFER_SIZE);
+        write(x, out);
+        out.flush();
+    }
+
+    public static void write(Apfloat x, Writer out) throws IOException {
+        x.writeTo(out, false);
+        out.write(System.getProperty("line.separator"));
+    }
+}
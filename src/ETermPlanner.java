@@ -0,0 +1,52 @@
+import org.apfloat.Apfloat;
+import org.apfloat.ApfloatMath;
+
+// Plans the number of terms of sum((2k+1)/(2k)!) needed for a precision up front,
+// so the whole term range can be scheduled at once instead of iterating until convergence.
+public class ETermPlanner {
+
+    long precision;
+    int radix;
+
+    public ETermPlanner(long precision, int radix) {
+        this.precision = precision;
+        this.radix = radix;
+    }
+
+    // Smallest N such that the omitted terms k >= N are below radix^-precision,
+    // i.e. log((2N)!) >= (precision + 1) * log(radix)
+    public long terms() {
+        double target = (precision + 1) * Math.log(radix);
+
+        // Stirling: m ln m - m = target gives m = target / W(target / e)
+        Apfloat x = new Apfloat(target / Math.E, 20);
+        long m = (long) Math.ceil(target / ApfloatMath.w(x).doubleValue());
+
+        // The estimate ignores the 0.5 * ln(2 pi m) term, correct it with the full formula
+        while (m > 2 && logFactorial(m - 1) >= target) {
+            m--;
+        }
+        while (logFactorial(m) < target) {
+            m++;
+        }
+        return (m + 1) / 2 + 1;
+    }
+
+    // Split the terms [0, terms) into count ranges of (almost) equal length
+    public long[] split(long terms, int count) {
+        long[] bounds = new long[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = terms * i / count;
+        }
+        return bounds;
+    }
+
+    // Evaluate ln(m!) with Stirling's series
+    static double logFactorial(long m) {
+        if (m < 2) {
+            return 0;
+        }
+        double n = m;
+        return n * Math.log(n) - n + 0.5 * Math.log(2 * Math.PI * n) + 1 / (12 * n);
+    }
+}
@@ -1,122 +1,232 @@
-import java.io.FileNotFoundException;
-import java.io.PrintStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Calendar;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apfloat.Apfloat;
+import org.apfloat.ApfloatConfigurationException;
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatMath;
 import java.math.BigInteger;
 
 public class Main {
 
-    static int numThreads;
-    static int precision;
+    static int numThreads = 16;
+    static long precision = 10000;
+    static int radix = 10;
     static String outputFile = "result.txt";
     static boolean quiet = false;
+    static String algorithm = "forkjoin";
     static eThread[] array;
     static Apfloat sum;
     static Options options;
+    static String reportFormat;
+    static String checkpointDir;
+    static int checkpointChunks = 64;
+    static EReport report;
+    static ECheckpointer checkpointer;
 
+    public static void createOptions() {
+        options.addOption("p", "precision", true, "number of digits to calculate (default 10000)");
+        options.addOption("t", "threads", true, "number of threads (default 16)");
+        options.addOption("o", "output", true, "name of the output file (default result.txt)");
+        options.addOption("q", "quiet", false, "quiet mode - do not print the result");
+        options.addOption("r", "radix", true, "radix of the result (default 10)");
+        options.addOption(null, "algorithm", true, "forkjoin, binary, threads or library (default forkjoin)");
+        options.addOption(null, "memory-threshold", true, "largest number in bytes kept in memory instead of on disk");
+        options.addOption(null, "disk-path", true, "directory for the temporary files of large numbers");
+        options.addOption(null, "checkpoint-dir", true, "save completed term ranges here and resume from them");
+        options.addOption(null, "checkpoint-chunks", true, "number of term ranges to checkpoint (default 64)");
+        options.addOption(null, "report", true, "print per-phase timings as text or json");
+        options.addOption("h", "help", false, "print this message");
+    }
 
-	/*public static void createOptions() {
-	options.addOption("p", true, "select precision point");
-	options.addOption("t", true, "enter number of threads");
-	options.addOption("o", false, "name of the putput file");
-	options.addOption("q", false, "flag - make the regime quite");
-	}
-    */
-    
-    public static void main(String[] args) throws FileNotFoundException {
-       
-      /*	options = new Options();
-		createOptions();
-	    CommandLineParser parser = new DefaultParser();
-	    try {
-	        // parse the command line arguments
-	        CommandLine line = parser.parse( options, args );
-	        String pOption = line.getOptionValue("p");
-	        String tOption = line.getOptionValue("t");
-	        String oOption = line.getOptionValue("o");
-	        String qOption = line.getOptionValue("q");
-	        
-	        System.out.println(pOption);
-	        precision = Integer.parseInt(pOption);
-	        numThreads =  Integer.parseInt(tOption);
-	        quiet = true;
-	    }
-	    catch( ParseException exp ) {
-	        // oops, something went wrong
-	        System.err.println( "Parsing failed.  Reason: " + exp.getMessage() );
-	    }    */
-    	precision = 10000;
-    	numThreads = 16;
-	    long timeOfStart = Calendar.getInstance().getTimeInMillis();
-        if (precision <= 0 || numThreads <= 0) {
-            System.out.println("ERROR: Args are not correct!!!");
-        } else {
-            array = new eThread[numThreads];
-            BigInteger termsOfThread = BigInteger.valueOf(precision).divide(BigInteger.valueOf(16)).divide(BigInteger.valueOf(numThreads));
-            
-            while(termsOfThread.compareTo(BigInteger.valueOf(100)) > 0) {
-                termsOfThread = termsOfThread.divide(BigInteger.TEN);
+    // Read the command line into the fields above and into the ApfloatContext
+    public static boolean parseArgs(String[] args) {
+        options = new Options();
+        createOptions();
+        CommandLineParser parser = new DefaultParser();
+        try {
+            CommandLine line = parser.parse(options, args);
+            if (line.hasOption("h")) {
+                new HelpFormatter().printHelp("Main", options);
+                return false;
             }
-            
-            BigInteger currentTerm = BigInteger.ZERO;
-            sum = new Apfloat(0, precision);
+            precision = Long.parseLong(line.getOptionValue("p", Long.toString(precision)));
+            numThreads = Integer.parseInt(line.getOptionValue("t", Integer.toString(numThreads)));
+            radix = Integer.parseInt(line.getOptionValue("r", Integer.toString(radix)));
+            outputFile = line.getOptionValue("o", outputFile);
+            quiet = line.hasOption("q");
+            algorithm = line.getOptionValue("algorithm", algorithm);
+            reportFormat = line.getOptionValue("report");
+            checkpointDir = line.getOptionValue("checkpoint-dir");
+            checkpointChunks = Integer.parseInt(line.getOptionValue("checkpoint-chunks", Integer.toString(checkpointChunks)));
 
-            while (true) {
-                for (int t = 0; t < numThreads; t++) {
-                    eThread thread = new eThread("Thread " + Integer.toString(t),
-                            precision, numThreads,
-                            /*firstTerm = */ currentTerm,
-                            /*lastTerm = */ currentTerm.add(termsOfThread), quiet);
-                    thread.start();
-                    array[t] = thread;
-                    currentTerm = currentTerm.add(termsOfThread);
-                }
+            if (precision <= 0 || numThreads <= 0 || radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+                System.err.println("ERROR: Args are not correct!!!");
+                return false;
+            }
+            if (!algorithm.equals("forkjoin") && !algorithm.equals("binary") && !algorithm.equals("threads") && !algorithm.equals("library")) {
+                System.err.println("ERROR: Unknown algorithm " + algorithm);
+                return false;
+            }
+            if (reportFormat != null && !reportFormat.equals("text") && !reportFormat.equals("json")) {
+                System.err.println("ERROR: Unknown report format " + reportFormat);
+                return false;
+            }
+            if (checkpointChunks <= 0) {
+                System.err.println("ERROR: Args are not correct!!!");
+                return false;
+            }
+            if ((algorithm.equals("threads") || algorithm.equals("library")) && checkpointDir != null) {
+                System.err.println("ERROR: The " + algorithm + " algorithm does not support checkpoints");
+                return false;
+            }
+            if (algorithm.equals("threads") && precision > Integer.MAX_VALUE) {
+                System.err.println("ERROR: The threads algorithm supports at most " + Integer.MAX_VALUE + " digits");
+                return false;
+            }
 
-                for (int i = 0; i < numThreads; i++) {
-                    try {
-                        array[i].join();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    sum = sum.add(array[i].sum);
+            ApfloatContext ctx = ApfloatContext.getContext();
+            ctx.setNumberOfProcessors(numThreads);
+            ctx.setDefaultRadix(radix);
+            if (line.hasOption("memory-threshold")) {
+                ctx.setProperty(ApfloatContext.MEMORY_THRESHOLD, line.getOptionValue("memory-threshold"));
+            }
+            if (line.hasOption("disk-path")) {
+                // The file path is used as a prefix of the generated file names
+                String path = line.getOptionValue("disk-path");
+                if (!path.endsWith(File.separator)) {
+                    path += File.separator;
                 }
+                ctx.setProperty(ApfloatContext.FILE_PATH, path);
+            }
+        } catch (ParseException exp) {
+            System.err.println("Parsing failed.  Reason: " + exp.getMessage());
+            new HelpFormatter().printHelp("Main", options);
+            return false;
+        } catch (NumberFormatException | ApfloatConfigurationException exp) {
+            System.err.println("Invalid argument: " + exp.getMessage());
+            return false;
+        }
+        return true;
+    }
 
-                if (!quiet) {
-                //    System.out.println("sum = " + sum.toString());
-                }
-                
-                // Calculate currentTerm-th term
-                Apfloat nth = array[numThreads - 1].lastTermValue;
-                if (sum.equals(sum.add(nth))) {
-                    break;
+    public static void main(String[] args) {
+        if (!parseArgs(args)) {
+            System.exit(1);
+        }
+
+        report = new EReport(algorithm, precision, radix, numThreads);
+        long timeOfStart = Calendar.getInstance().getTimeInMillis();
+        if (algorithm.equals("threads")) {
+            report.startPhase("series");
+            sum = sumWithThreads();
+            report.endPhase();
+        } else if (algorithm.equals("library")) {
+            report.startPhase("series");
+            sum = ApfloatMath.e(precision, radix);
+            report.endPhase();
+        } else {
+            EBinarySplittingCalculator calculator;
+            if (algorithm.equals("forkjoin")) {
+                calculator = new EForkJoinCalculator(precision, radix);
+            } else {
+                calculator = new EBinarySplittingCalculator(precision, radix);
+            }
+            calculator.report = report;
+            report.startPhase("series");
+            long terms = calculator.terms();
+            EPartialSum series;
+            if (checkpointDir == null) {
+                series = calculator.sum(0, terms);
+            } else {
+                checkpointer = new ECheckpointer(new File(checkpointDir), checkpointChunks, quiet);
+                try {
+                    series = checkpointer.sum(calculator, terms);
+                } catch (IOException e) {
+                    System.err.println("Checkpoint failed: " + e.getMessage());
+                    System.exit(1);
+                    return;
                 }
             }
-        
-            long timeOfEnd = Calendar.getInstance().getTimeInMillis();
+            report.endPhase();
+            report.startPhase("division");
+            sum = calculator.divide(series);
+            report.endPhase();
+        }
+        long timeOfEnd = Calendar.getInstance().getTimeInMillis();
+
         // Write to file
+        report.startPhase("output");
         try {
-            PrintStream file = new PrintStream(outputFile);
-            file.println(sum);
-        } catch (FileNotFoundException fnf) {
-            System.out.println("File " + outputFile + " not found.");
+            EResultWriter.write(sum, outputFile);
+            if (checkpointer != null) {
+                checkpointer.clear(radix, new ETermPlanner(precision, radix).terms(), precision);
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot write to file " + outputFile + ": " + e.getMessage());
         }
+        report.endPhase();
 
-        System.out.println("Time of calculate: " + (timeOfEnd - timeOfStart) + " ms.");
+        if (reportFormat == null) {
+            System.out.println("Time of calculate: " + (timeOfEnd - timeOfStart) + " ms.");
+        } else if (reportFormat.equals("json")) {
+            System.out.println(report.toJson());
+        } else {
+            System.out.print(report.toText());
+        }
         if (!quiet) {
-            System.out.println("Result: " + sum);
+            System.out.print("Result: ");
+            try {
+                EResultWriter.print(sum);
+            } catch (IOException e) {
+                System.out.println("Cannot print result: " + e.getMessage());
+            }
         }
     }
+
+    // Sum the series term by term, one eThread per planned range of terms
+    static Apfloat sumWithThreads() {
+        ETermPlanner planner = new ETermPlanner(precision, radix);
+        long terms = planner.terms();
+        // Each eThread evaluates at least its first term, so never use more threads than terms
+        int threads = (int) Math.min(numThreads, terms);
+        long[] bounds = planner.split(terms, threads);
+
+        // Each eThread starts with (2 * firstTerm)!, build them as one chain of checkpoints
+        long[] factorials = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            factorials[t] = 2 * bounds[t];
+        }
+        EFactorialService.plan(factorials, radix);
+
+        array = new eThread[threads];
+        for (int t = 0; t < threads; t++) {
+            eThread thread = new eThread("Thread " + Integer.toString(t),
+                    (int) precision, numThreads,
+                    /*firstTerm = */ BigInteger.valueOf(bounds[t]),
+                    /*lastTerm = */ BigInteger.valueOf(bounds[t + 1]), quiet);
+            thread.report = report;
+            thread.start();
+            array[t] = thread;
+        }
+
+        Apfloat sum = new Apfloat(0, precision);
+        for (int i = 0; i < threads; i++) {
+            try {
+                array[i].join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            sum = sum.add(array[i].sum);
+        }
+        // The factorial checkpoints are only useful within one run
+        EFactorialService.clear();
+        return sum;
     }
-    // Evaluate n!
-    public static BigInteger factorial(BigInteger n) {
-        if (n.compareTo(BigInteger.ONE) <= 0) // n <= 1
-            return BigInteger.ONE;
-        else
-            return n.multiply(factorial(n.subtract(BigInteger.ONE)));
-    }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 
 import org.apfloat.Apfloat;
+import org.apfloat.ApfloatContext;
 import java.math.BigInteger;
 import java.util.Calendar;
 
@@ -15,9 +16,12 @@ public class eThread extends Thread {
     long timeOfStart;
     long timeOfEnd;
     Apfloat sum;
+    // Timings are added here if it is set
+    EReport report;
     
     public eThread(String nameThread, int precision, int numThread, BigInteger firstTerm, BigInteger lastTerm, boolean quiet) {
         this.nameThread = nameThread;
+        setName(nameThread);
         this.precision = precision;
         this.numThread = numThread;
         this.firstTerm = firstTerm;
@@ -28,6 +32,8 @@ public class eThread extends Thread {
 
     public void run() {
         timeOfStart = Calendar.getInstance().getTimeInMillis();
+        long wallStart = System.nanoTime();
+        long cpuStart = EReport.threadCpuTime();
         if (!quiet) {
             System.out.println(nameThread + " is starting! Calculate from " + firstTerm + " to " + lastTerm + " term!");
         }
@@ -38,7 +44,7 @@ public class eThread extends Thread {
         if (firstTerm.compareTo(BigInteger.ZERO) == 0) {
             denominator = new Apfloat(1, precision);
         } else {
-            denominator = new Apfloat(factorial(firstTerm.multiply(BigInteger.valueOf(2))), precision);
+            denominator = EFactorialService.factorial(2 * firstTerm.longValue(), ApfloatContext.getContext().getDefaultRadix()).precision(precision);
         }
         sum = sum.add(numerator.divide(denominator));
 
@@ -55,19 +61,13 @@ public class eThread extends Thread {
         lastTermValue = numerator.divide(denominator);
 
         timeOfEnd = Calendar.getInstance().getTimeInMillis();
+        if (report != null) {
+            report.addWork(lastTerm.subtract(firstTerm).longValue(), wallStart, cpuStart);
+        }
 
         if (!quiet) {
        //     System.out.println(nameThread + " is finishing!\nIt works " + (timeOfEnd - timeOfStart) + " ms.\nSub-sum is " + sum.toString() + "!\n");
         }
     }
 
-    // Evaluate n!
-    public static BigInteger factorial(BigInteger n) {
-        if (n.compareTo(BigInteger.ONE) <= 0) // n <= 1
-        {
-            return BigInteger.ONE;
-        } else {
-            return n.multiply(factorial(n.subtract(BigInteger.ONE)));
-        }
-    }
 }
\ No newline at end of file
@@ -36,6 +36,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apfloat.spi.BuilderFactory;
 import org.apfloat.spi.FilenameGenerator;
+import org.apfloat.spi.MemoryGovernor;
 import org.apfloat.spi.Util;
 
 /**
@@ -82,6 +83,11 @@ import org.apfloat.spi.Util;
  *   <li><code>fileInitialValue</code>, set as in {@link #setProperty(String,String)} with property name {@link #FILE_INITIAL_VALUE}</li>
  *   <li><code>fileSuffix</code>, set as in {@link #setProperty(String,String)} with property name {@link #FILE_SUFFIX}</li>
  *   <li><code>cleanupAtExit</code>, set as in {@link #setCleanupAtExit(boolean)}</li>
+ *   <li><code>karatsubaCutoffPoint</code>, set as in {@link #setKaratsubaCutoffPoint(int)}</li>
+ *   <li><code>karatsubaCostFactor</code>, set as in {@link #setKaratsubaCostFactor(float)}</li>
+ *   <li><code>nttCostFactor</code>, set as in {@link #setNTTCostFactor(float)}</li>
+ *   <li><code>maxOffHeapBlockSize</code>, set as in {@link #setMaxOffHeapBlockSize(long)}</li>
+ *   <li><code>mappedDiskDataStorage</code>, set as in {@link #setMappedDiskDataStorage(boolean)}</li>
  * </ul>
  * <p>
  *
@@ -106,7 +112,9 @@ import org.apfloat.spi.Util;
  *
  * The total memory size and the number of processors are detected automatically,
  * as reported by the Java runtime, if they are not specified in the configuration
- * bundle.<p>
+ * bundle. The convolution settings default to the values built in to the builder
+ * factory. Values that suit the current machine can be measured and written to an
+ * <code>apfloat.properties</code> file with {@link org.apfloat.internal.Calibrator}.<p>
  *
  * If you need to create a complex multithreaded application that performs
  * apfloat calculations in parallel using multiple threads, you may need to
@@ -128,28 +136,21 @@ import org.apfloat.spi.Util;
  *       there are processors.</li>
  *   <li>{@link #setMaxMemoryBlockSize(long)}: The physical memory is global
  *       and its amount is fixed as well. Since all threads share the global
- *       memory, you may want to limit the maximum amount of memory each thread
- *       can use. If you do this, you will probably just split the amount of
- *       memory between the threads, e.g. by dividing it equally. In this case
- *       you should set each thread to have a separate shared memory lock with
- *       {@link #setSharedMemoryLock(Object)}. In this solution all threads can
- *       allocate their maximum allowed memory block at the same time, and still
- *       the VM won't run out of memory.<br>
- *       Another possibility is to set the whole global memory size as the maximum
- *       available for each thread, and use the same shared memory lock for every
- *       thread. This is actually the default behavior, if you don't call
- *       {@link #setMaxMemoryBlockSize(long)} nor {@link #setSharedMemoryLock(Object)}.
- *       This way all threads can access the maximum amount of physical memory
- *       available. The drawback is that the threads will synchronize on the
- *       same memory block, so only one thread can use it at a time. This can
- *       have a major effect on performance, if threads are idle, waiting to acquire
- *       the shared memory lock for most of the time. To work around this, some
- *       mechanism can be set up for pooling the threads competing for the same
- *       lock, and executing the task using parallel threads from the thread pool.
- *       For example the default apfloat multiplication algorithm uses such a
- *       mechanism. Note that synchronization against the shared memory lock
- *       will be used for all data blocks larger than the shared memory
- *       threshold (see {@link #getSharedMemoryTreshold()}).</li>
+ *       memory, the calculations of all threads reserve their memory from
+ *       the same {@link MemoryGovernor}, which has a budget of the maximum memory
+ *       block size by default. As many large calculations run concurrently in
+ *       memory as fit in the budget, and when the budget is exhausted, the other
+ *       large calculations use disk-based storage for their data instead. This is the
+ *       default behavior, if you don't call {@link #setMaxMemoryBlockSize(long)}
+ *       nor {@link #setMemoryGovernor(MemoryGovernor)}.<br>
+ *       Alternatively you can limit the maximum amount of memory each thread
+ *       can use, e.g. by dividing it equally between the threads. In this case
+ *       you should set each thread to have a separate memory governor, that
+ *       has the maximum memory block size of the thread as its budget. In this solution all threads can allocate
+ *       their maximum allowed memory block at the same time, and still the VM
+ *       won't run out of memory. Note that only the data blocks larger than the
+ *       shared memory threshold (see {@link #getSharedMemoryTreshold()}) are
+ *       moved to disk, the smaller ones just account for their memory.</li>
  *   <li>{@link #setFilenameGenerator(FilenameGenerator)}: When you clone an
  *       ApfloatContext, the filename generator is by default shared. For most
  *       situations this is fine. If you for some reason want to separate
@@ -177,7 +178,7 @@ import org.apfloat.spi.Util;
  * If these features are added to the Java platform in the future, they
  * may be added to the <code>ApfloatContext</code> API as well.
  *
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -277,6 +278,46 @@ public class ApfloatContext
 
     public static final String CLEANUP_AT_EXIT = "cleanupAtExit";
 
+    /**
+     * Property name for specifying the Karatsuba convolution cutoff point.
+     *
+     * @since 1.8.3
+     */
+
+    public static final String KARATSUBA_CUTOFF_POINT = "karatsubaCutoffPoint";
+
+    /**
+     * Property name for specifying the Karatsuba convolution cost factor.
+     *
+     * @since 1.8.3
+     */
+
+    public static final String KARATSUBA_COST_FACTOR = "karatsubaCostFactor";
+
+    /**
+     * Property name for specifying the NTT convolution cost factor.
+     *
+     * @since 1.8.3
+     */
+
+    public static final String NTT_COST_FACTOR = "nttCostFactor";
+
+    /**
+     * Property name for specifying the maximum off-heap memory block size.
+     *
+     * @since 1.8.3
+     */
+
+    public static final String MAX_OFF_HEAP_BLOCK_SIZE = "maxOffHeapBlockSize";
+
+    /**
+     * Property name for specifying if disk data storage is memory-mapped.
+     *
+     * @since 1.8.3
+     */
+
+    public static final String MAPPED_DISK_DATA_STORAGE = "mappedDiskDataStorage";
+
     // At system exit, run garbage collection and finalization to clean up temporary files
     private static class CleanupThread
         extends Thread
@@ -745,13 +786,13 @@ public class ApfloatContext
 
     /**
      * Set the maximum size of apfloats in bytes that can be used
-     * without synchronizing against the shared memory lock.
+     * in memory regardless of the budget of the memory governor.
      * The minimum value for this setting is 128.<p>
      *
      * If only one thread is used then this setting has no effect.
      * If multiple threads are used, and this setting is too small,
-     * performance will suffer as the synchronization blocking and
-     * other overhead becomes significant. On the other hand, if the
+     * performance will suffer as numbers are unnecessarily stored
+     * on disk when the memory budget is exhausted. On the other hand, if the
      * numbers are being stored in memory, and the shared memory
      * threshold is too big, you can get an <code>OutOfMemoryError</code>.<p>
      *
@@ -760,7 +801,7 @@ public class ApfloatContext
      * the maximum memory block size divided by the number of parallel threads.
      * The default is somewhat more conservatively this number divided by 32.
      *
-     * @param sharedMemoryTreshold The number of bytes that apfloats will at most have, without synchronizing against the shared memory lock, within this context.
+     * @param sharedMemoryTreshold The number of bytes that apfloats will at most have, regardless of the budget of the memory governor, within this context.
      */
 
     public void setSharedMemoryTreshold(long sharedMemoryTreshold)
@@ -897,6 +938,194 @@ public class ApfloatContext
         }
     }
 
+    /**
+     * Get the Karatsuba convolution cutoff point.
+     *
+     * @return The Karatsuba convolution cutoff point, or zero if the builder factory's default is used.
+     *
+     * @see #setKaratsubaCutoffPoint(int)
+     *
+     * @since 1.8.3
+     */
+
+    public int getKaratsubaCutoffPoint()
+    {
+        return this.karatsubaCutoffPoint;
+    }
+
+    /**
+     * Set the Karatsuba convolution cutoff point. Convolutions where
+     * the shorter operand is at most this long are calculated using
+     * the basic O(n<sup>2</sup>) algorithm.<p>
+     *
+     * The optimal value depends on the builder factory and the processor,
+     * so it's best measured with {@link org.apfloat.internal.Calibrator}.
+     * The default value zero means that the default of the builder
+     * factory is used.
+     *
+     * @param karatsubaCutoffPoint The Karatsuba convolution cutoff point, or zero to use the builder factory's default.
+     *
+     * @since 1.8.3
+     */
+
+    public void setKaratsubaCutoffPoint(int karatsubaCutoffPoint)
+    {
+        karatsubaCutoffPoint = Math.max(karatsubaCutoffPoint, 0);
+        this.properties.setProperty(KARATSUBA_CUTOFF_POINT, String.valueOf(karatsubaCutoffPoint));
+        this.karatsubaCutoffPoint = karatsubaCutoffPoint;
+    }
+
+    /**
+     * Get the Karatsuba convolution cost factor.
+     *
+     * @return The Karatsuba convolution cost factor, or zero if the builder factory's default is used.
+     *
+     * @see #setKaratsubaCostFactor(float)
+     *
+     * @since 1.8.3
+     */
+
+    public float getKaratsubaCostFactor()
+    {
+        return this.karatsubaCostFactor;
+    }
+
+    /**
+     * Set the relative cost of the Karatsuba convolution, compared to
+     * the basic O(n<sup>2</sup>) algorithm. It is used in choosing the
+     * most efficient convolution algorithm for the operand sizes.<p>
+     *
+     * The optimal value depends on the builder factory and the processor,
+     * so it's best measured with {@link org.apfloat.internal.Calibrator}.
+     * The default value zero means that the default of the builder
+     * factory is used.
+     *
+     * @param karatsubaCostFactor The Karatsuba convolution cost factor, or zero to use the builder factory's default.
+     *
+     * @since 1.8.3
+     */
+
+    public void setKaratsubaCostFactor(float karatsubaCostFactor)
+    {
+        karatsubaCostFactor = Math.max(karatsubaCostFactor, 0.0f);
+        this.properties.setProperty(KARATSUBA_COST_FACTOR, String.valueOf(karatsubaCostFactor));
+        this.karatsubaCostFactor = karatsubaCostFactor;
+    }
+
+    /**
+     * Get the NTT convolution cost factor.
+     *
+     * @return The NTT convolution cost factor, or zero if the builder factory's default is used.
+     *
+     * @see #setNTTCostFactor(float)
+     *
+     * @since 1.8.3
+     */
+
+    public float getNTTCostFactor()
+    {
+        return this.nttCostFactor;
+    }
+
+    /**
+     * Set the relative cost of the NTT convolution, compared to
+     * the basic O(n<sup>2</sup>) algorithm. It is used in choosing the
+     * most efficient convolution algorithm for the operand sizes.<p>
+     *
+     * The default value zero means that the default of the builder
+     * factory is used.
+     *
+     * @param nttCostFactor The NTT convolution cost factor, or zero to use the builder factory's default.
+     *
+     * @since 1.8.3
+     */
+
+    public void setNTTCostFactor(float nttCostFactor)
+    {
+        nttCostFactor = Math.max(nttCostFactor, 0.0f);
+        this.properties.setProperty(NTT_COST_FACTOR, String.valueOf(nttCostFactor));
+        this.nttCostFactor = nttCostFactor;
+    }
+
+    /**
+     * Get the maximum off-heap memory block size.
+     *
+     * @return The maximum off-heap memory block size, or zero if off-heap memory is not used.
+     *
+     * @see #setMaxOffHeapBlockSize(long)
+     *
+     * @since 1.8.3
+     */
+
+    public long getMaxOffHeapBlockSize()
+    {
+        return this.maxOffHeapBlockSize;
+    }
+
+    /**
+     * Set the maximum allowed off-heap memory block size in bytes.
+     * Temporary data that is too big for an array in the heap, as limited by
+     * {@link #setMaxMemoryBlockSize(long)} and the maximum array length, but
+     * at most this size, is kept in off-heap memory instead of a disk file.
+     * The data is then never copied by the garbage collector, and it can
+     * have more than 2<sup>31</sup> elements.<p>
+     *
+     * The off-heap memory is allocated as direct buffers, so the total
+     * amount is also limited by the <code>-XX:MaxDirectMemorySize</code>
+     * option of the VM. Note that one multiplication can use several
+     * blocks of this size at the same time.<p>
+     *
+     * The default value zero means that off-heap memory is not used.
+     *
+     * @param maxOffHeapBlockSize Maximum allocated off-heap memory block size in bytes, or zero to not use off-heap memory.
+     *
+     * @since 1.8.3
+     */
+
+    public void setMaxOffHeapBlockSize(long maxOffHeapBlockSize)
+    {
+        maxOffHeapBlockSize = Math.max(maxOffHeapBlockSize, 0);
+        this.properties.setProperty(MAX_OFF_HEAP_BLOCK_SIZE, String.valueOf(maxOffHeapBlockSize));
+        this.maxOffHeapBlockSize = maxOffHeapBlockSize;
+    }
+
+    /**
+     * Get if disk data storage is memory-mapped.
+     *
+     * @return <code>true</code> if disk data storage is memory-mapped, or <code>false</code> if not.
+     *
+     * @see #setMappedDiskDataStorage(boolean)
+     *
+     * @since 1.8.3
+     */
+
+    public boolean getMappedDiskDataStorage()
+    {
+        return this.mappedDiskDataStorage;
+    }
+
+    /**
+     * Set if disk data storage should be memory-mapped.
+     * Memory-mapped files are accessed without copying the data
+     * through read and write calls, but each mapping takes address
+     * space and the mapping is only released when the buffer is
+     * garbage collected.<p>
+     *
+     * The default is <code>true</code> on 64-bit platforms, where mapping
+     * large files does not run out of address space, except on Windows,
+     * where a file can't be resized or deleted while it's mapped.
+     *
+     * @param mappedDiskDataStorage <code>true</code> if disk data storage should be memory-mapped, or <code>false</code> if not.
+     *
+     * @since 1.8.3
+     */
+
+    public void setMappedDiskDataStorage(boolean mappedDiskDataStorage)
+    {
+        this.properties.setProperty(MAPPED_DISK_DATA_STORAGE, String.valueOf(mappedDiskDataStorage));
+        this.mappedDiskDataStorage = mappedDiskDataStorage;
+    }
+
     /**
      * Get the value of a property as string.
      * The name of the property can be any of the constants defined above.
@@ -1005,6 +1234,26 @@ public class ApfloatContext
             {
                 setCleanupAtExit(Boolean.parseBoolean(propertyValue));
             }
+            else if (propertyName.equals(KARATSUBA_CUTOFF_POINT))
+            {
+                setKaratsubaCutoffPoint(Integer.parseInt(propertyValue));
+            }
+            else if (propertyName.equals(KARATSUBA_COST_FACTOR))
+            {
+                setKaratsubaCostFactor(Float.parseFloat(propertyValue));
+            }
+            else if (propertyName.equals(NTT_COST_FACTOR))
+            {
+                setNTTCostFactor(Float.parseFloat(propertyValue));
+            }
+            else if (propertyName.equals(MAX_OFF_HEAP_BLOCK_SIZE))
+            {
+                setMaxOffHeapBlockSize(Long.parseLong(propertyValue));
+            }
+            else if (propertyName.equals(MAPPED_DISK_DATA_STORAGE))
+            {
+                setMappedDiskDataStorage(Boolean.parseBoolean(propertyValue));
+            }
             else
             {
                 this.properties.setProperty(propertyName, propertyValue);
@@ -1032,7 +1281,10 @@ public class ApfloatContext
      * Get the shared memory lock object.
      * All internal functions that allocate a memory block larger than the
      * shared memory threshold should synchronize the allocation and memory access
-     * on the object returned by this method.
+     * on the object returned by this method.<p>
+     *
+     * The convolutions of apfloat reserve their memory from the memory
+     * governor instead, see {@link #getMemoryGovernor()}.
      *
      * @return The object on which large memory block allocation and access should be synchronized.
      */
@@ -1061,6 +1313,47 @@ public class ApfloatContext
         this.sharedMemoryLock = lock;
     }
 
+    /**
+     * Get the memory governor.
+     * Calculations reserve their memory from the governor before using it,
+     * and release the reservation when they are done. If the budget is
+     * exhausted, calculations that use more memory than the shared memory
+     * threshold use disk-based storage instead of memory. Smaller calculations
+     * only account for their memory, without checking the budget.<p>
+     *
+     * By default the budget of the memory governor is the maximum memory
+     * block size of the current ApfloatContext, and the memory governor
+     * is shared by all the clones of the ApfloatContext.
+     *
+     * @return The memory governor.
+     *
+     * @see #setMemoryGovernor(MemoryGovernor)
+     *
+     * @since 1.8.3
+     */
+
+    public MemoryGovernor getMemoryGovernor()
+    {
+        return this.memoryGovernor;
+    }
+
+    /**
+     * Set the memory governor.
+     * Contexts that use the same memory governor share its budget.
+     * One would typically call this method e.g. as
+     * <code>ctx.setMemoryGovernor(new MemoryGovernor())</code>,
+     * after setting the maximum memory block size of a cloned context.
+     *
+     * @param memoryGovernor The memory governor.
+     *
+     * @since 1.8.3
+     */
+
+    public void setMemoryGovernor(MemoryGovernor memoryGovernor)
+    {
+        this.memoryGovernor = memoryGovernor;
+    }
+
     /**
      * Get the ExecutorService.
      * It can be used for executing operations in parallel.<p>
@@ -1257,7 +1550,7 @@ public class ApfloatContext
      * Creates a copy of this object.<p>
      *
      * The clone has the same BuilderFactory and FilenameGenerator members
-     * and the same shared memory lock and ExecutorService as the original
+     * and the same shared memory lock, MemoryGovernor and ExecutorService as the original
      * ApfloatContext.<p>
      *
      * A shallow copy of the property set and the attribute set is created.
@@ -1303,9 +1596,15 @@ public class ApfloatContext
     private volatile long sharedMemoryTreshold;
     private volatile int blockSize;
     private volatile int numberOfProcessors;
+    private volatile int karatsubaCutoffPoint;
+    private volatile float karatsubaCostFactor;
+    private volatile float nttCostFactor;
+    private volatile long maxOffHeapBlockSize;
+    private volatile boolean mappedDiskDataStorage;
     private volatile CleanupThread cleanupThread;
     private volatile Properties properties;
     private volatile Object sharedMemoryLock = new Object();
+    private volatile MemoryGovernor memoryGovernor = new MemoryGovernor();
     private volatile ExecutorService executorService = ApfloatContext.defaultExecutorService;
     private volatile ConcurrentHashMap<String, Object> attributes = new ConcurrentHashMap<String, Object>();
 
@@ -1335,6 +1634,19 @@ public class ApfloatContext
         // Guess if we are using a 32-bit or 64-bit platform
         String elementType = (totalMemory >= 4L << 30 ? "Long" : "Int");
 
+        // Map disk files only where mapping large files does not run out of address space, and mapped files can be deleted
+        boolean mappedDiskDataStorage;
+        try
+        {
+            mappedDiskDataStorage = "64".equals(System.getProperty("sun.arch.data.model")) &&
+                                    !System.getProperty("os.name", "").startsWith("Windows");
+        }
+        catch (SecurityException se)
+        {
+            // Can't check the platform, so use the plain disk data storage
+            mappedDiskDataStorage = false;
+        }
+
         ApfloatContext.defaultProperties.setProperty(BUILDER_FACTORY, "org.apfloat.internal." + elementType + "BuilderFactory");
         ApfloatContext.defaultProperties.setProperty(DEFAULT_RADIX, "10");
         ApfloatContext.defaultProperties.setProperty(MAX_MEMORY_BLOCK_SIZE, String.valueOf(maxMemoryBlockSize));
@@ -1349,6 +1661,7 @@ public class ApfloatContext
         ApfloatContext.defaultProperties.setProperty(FILE_INITIAL_VALUE, "0");
         ApfloatContext.defaultProperties.setProperty(FILE_SUFFIX, ".ap");
         ApfloatContext.defaultProperties.setProperty(CLEANUP_AT_EXIT, "true");
+        ApfloatContext.defaultProperties.setProperty(MAPPED_DISK_DATA_STORAGE, String.valueOf(mappedDiskDataStorage));
 
         // Set combination of default properties and properties specified in the resource bundle
         ApfloatContext.globalContext = new ApfloatContext(loadProperties());
@@ -32,6 +32,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apfloat.spi.ApfloatImpl;
 import org.apfloat.spi.Util;
 
 /**
@@ -354,15 +355,20 @@ public class ApfloatMath
 
         x = ApfloatHelper.extendPrecision(x);
 
+        long nDigits = Long.toString(n, x.radix()).length();
+
         // Newton's iteration
         while (iterations-- > 0)
         {
             precision *= 2;
             result = result.precision(Math.min(precision, targetPrecision));
 
+            // The result of the previous iteration is accurate to about half the precision, so x * result^n is equal to one to about that many digits
+            long equalDigits = precision / 2 - Apcomplex.EXTRA_PRECISION - nDigits;
+
             Apfloat t = pow(result, n);
             t = lastIterationExtendPrecision(iterations, precisingIteration, t);
-            t = one.subtract(x.multiply(t));
+            t = oneMinusProduct(x, t, equalDigits);
             if (iterations < precisingIteration)
             {
                 t = t.precision(precision / 2);
@@ -378,7 +384,7 @@ public class ApfloatMath
                 t = lastIterationExtendPrecision(iterations, -1, t);
 
                 result = lastIterationExtendPrecision(iterations, -1, result);
-                result = result.add(result.multiply(one.subtract(x.multiply(t))).divide(divisor));
+                result = result.add(result.multiply(oneMinusProduct(x, t, equalDigits)).divide(divisor));
             }
         }
 
@@ -1109,6 +1115,252 @@ public class ApfloatMath
         return pi;
     }
 
+    /**
+     * Calculates <i>e</i>, the base of the natural logarithm. Uses default radix.
+     *
+     * @param precision Number of digits of <i>e</i> to calculate.
+     *
+     * @return <i>e</i> accurate to <code>precision</code> digits, in the default radix.
+     *
+     * @exception java.lang.NumberFormatException If the default radix is not valid.
+     * @exception java.lang.IllegalArgumentException In case the precision is invalid.
+     *
+     * @since 1.8.3
+     */
+
+    public static Apfloat e(long precision)
+        throws IllegalArgumentException, NumberFormatException, ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        int radix = ctx.getDefaultRadix();
+
+        return e(precision, radix);
+    }
+
+    /**
+     * Calculates <i>e</i>, the base of the natural logarithm.<p>
+     *
+     * The value is calculated from the series <code>&sum;1/k!</code> with the binary
+     * splitting algorithm. The binary splitting state is cached, so a later call
+     * with a higher precision only calculates the additional terms.
+     *
+     * @param precision Number of digits of <i>e</i> to calculate.
+     * @param radix The radix in which the number should be presented.
+     *
+     * @return <i>e</i> accurate to <code>precision</code> digits, in base <code>radix</code>.
+     *
+     * @exception java.lang.NumberFormatException If the radix is not valid.
+     * @exception java.lang.IllegalArgumentException In case the precision is invalid.
+     *
+     * @since 1.8.3
+     */
+
+    public static Apfloat e(long precision, int radix)
+        throws IllegalArgumentException, NumberFormatException, ApfloatRuntimeException
+    {
+        if (precision <= 0)
+        {
+            throw new IllegalArgumentException("Precision " + precision + " is not positive");
+        }
+        else if (precision == Apfloat.INFINITE)
+        {
+            throw new InfiniteExpansionException("Cannot calculate e to infinite precision");
+        }
+
+        // Get synchronization lock - getting the lock is also synchronized
+        Integer radixKey = getRadixEKey(new Integer(radix));    // Use new Integer since we synchronize on it; Integer.valueOf() could be shared instance
+
+        Apfloat e;
+
+        // Synchronize getting pre-calculated e by radix key
+        synchronized (radixKey)
+        {
+            e = ApfloatMath.radixE.get(radixKey);
+
+            if (e == null || e.precision() < precision)
+            {
+                e = calculateE(precision, radixKey);
+            }
+            else
+            {
+                e = e.precision(precision);
+            }
+        }
+
+        return e;
+    }
+
+    /**
+     * Forgets the cached value of <i>e</i> and the cached binary splitting state
+     * for the radix. The next call of {@link #e(long,int)} then calculates <i>e</i>
+     * from the first term, e.g. for measuring the time of the whole calculation.
+     *
+     * @param radix The radix of the cached values.
+     *
+     * @since 1.8.3
+     */
+
+    public static void clearE(int radix)
+    {
+        Integer radixKey = getRadixEKey(new Integer(radix));
+
+        synchronized (radixKey)
+        {
+            ApfloatMath.radixE.remove(radixKey);
+            ApfloatMath.radixET.remove(radixKey);
+            ApfloatMath.radixEQ.remove(radixKey);
+            ApfloatMath.radixETerms.remove(radixKey);
+        }
+    }
+
+    // Get shared radix key for synchronizing getting and calculating the e related constants
+    private static Integer getRadixEKey(Integer radix)
+    {
+        Integer radixKey = ApfloatMath.radixEKeys.putIfAbsent(radix, radix);
+        if (radixKey == null)
+        {
+            radixKey = radix;
+        }
+
+        return radixKey;
+    }
+
+    private static class ECalculator
+    {
+        public ECalculator(int radix)
+            throws ApfloatRuntimeException
+        {
+            this.ONE = new Apfloat(1, Apfloat.INFINITE, radix);
+            this.radix = radix;
+        }
+
+        private Apfloat q(long n)
+            throws ApfloatRuntimeException
+        {
+            return (n == 0 ? this.ONE : new Apfloat(n, Apfloat.INFINITE, this.radix));
+        }
+
+        // The series is sum(1/k!), so a(n) = p(n) = 1 and P is always one
+        public void r(long n1, long n2, ApfloatHolder T, ApfloatHolder Q)
+            throws ApfloatRuntimeException
+        {
+            assert (n1 != n2);
+            long length = n2 - n1;
+
+            if (length == 1)
+            {
+                T.setApfloat(this.ONE);
+                Q.setApfloat(q(n1));
+            }
+            else
+            {
+                long nMiddle = (n1 + n2) / 2;
+                ApfloatHolder LT = new ApfloatHolder(),
+                              LQ = new ApfloatHolder();
+
+                r(n1, nMiddle, LT, LQ);
+                r(nMiddle, n2, T, Q);
+
+                T.setApfloat(Q.getApfloat().multiply(LT.getApfloat()).add(T.getApfloat()));
+                Q.setApfloat(LQ.getApfloat().multiply(Q.getApfloat()));
+            }
+        }
+
+        private final Apfloat ONE;
+        private int radix;
+    }
+
+    // Perform actual calculation of e for radix, and store the result to pre-calulation maps.
+    // Uses the binary splitting algorithm for the series sum(1/k!).
+    // Uses previously calculated terms (if such exist) and only calculates the missing terms.
+    private static Apfloat calculateE(long precision, Integer radixKey)
+        throws ApfloatRuntimeException
+    {
+        int radix = radixKey;
+        ECalculator eCalculator = ApfloatMath.radixECalculator.get(radixKey);
+        if (eCalculator == null)
+        {
+            eCalculator = new ECalculator(radix);
+            ApfloatMath.radixECalculator.put(radixKey, eCalculator);
+        }
+
+        Apfloat LT,
+                LQ;
+
+        ApfloatHolder RT = new ApfloatHolder(),
+                      RQ = new ApfloatHolder();
+
+        // Perform the calculation of T and Q to infinite precision
+        // to make possible to use them later for further calculations
+
+        long neededTerms = eTerms(precision, radix),
+             workingPrecision = ApfloatHelper.extendPrecision(precision);   // To avoid cumulative round-off errors
+
+        Long terms = ApfloatMath.radixETerms.get(radixKey);
+        LT = ApfloatMath.radixET.get(radixKey);
+        LQ = ApfloatMath.radixEQ.get(radixKey);
+
+        if (terms != null && LT != null && LQ != null)
+        {
+            // Some terms have been calculated already previously and cached
+            long currentTerms = terms;
+
+            // The needed extra precision may be achievable with the current terms
+            if (currentTerms < neededTerms)
+            {
+                eCalculator.r(currentTerms, neededTerms, RT, RQ);
+
+                LT = RQ.getApfloat().multiply(LT).add(RT.getApfloat());
+                LQ = LQ.multiply(RQ.getApfloat());
+            }
+            else
+            {
+                neededTerms = currentTerms;
+            }
+        }
+        else
+        {
+            eCalculator.r(0, neededTerms, RT, RQ);
+
+            LT = RT.getApfloat();
+            LQ = RQ.getApfloat();
+        }
+
+        Apfloat e = LT.precision(workingPrecision).divide(LQ.precision(workingPrecision));
+
+        // Limit precision to actual after extended working precision
+        e = e.precision(precision);
+
+        // Put the updated values to the caches
+        ApfloatMath.radixET.put(radixKey, LT);
+        ApfloatMath.radixEQ.put(radixKey, LQ);
+        ApfloatMath.radixETerms.put(radixKey, neededTerms);
+        ApfloatMath.radixE.put(radixKey, e);
+
+        return e;
+    }
+
+    // Number of terms n so that log(n!) exceeds the precision, solved from log(n!) ~ n log(n) - n with Newton's iteration
+    private static long eTerms(long precision, int radix)
+    {
+        double target = ((double) precision + 1) * Math.log((double) radix),
+               n = Math.max(target, 2.0);
+
+        for (int i = 0; i < 100; i++)
+        {
+            double f = n * Math.log(n) - n - target,
+                   next = n - f / Math.log(n);
+            if (Math.abs(next - n) < 0.5)
+            {
+                n = next;
+                break;
+            }
+            n = Math.max(next, 2.0);
+        }
+
+        return (long) Math.ceil(n) + 2;
+    }
+
     /**
      * Natural logarithm.<p>
      *
@@ -1926,6 +2178,36 @@ public class ApfloatMath
         return heap.remove().precision(maxPrec);
     }
 
+    /**
+     * Pins a number for repeated multiplication. The number theoretic
+     * transforms of the pinned number are cached when it is multiplied,
+     * so subsequent multiplications by the same number with the same
+     * transform length need to transform only the other operand.
+     * The cached transforms are softly referenced, so they are
+     * released when memory runs low, and they are freed with the number.<p>
+     *
+     * Pinning is useful e.g. when the same number is multiplied by
+     * several other numbers of similar size, and it can be used for
+     * {@link Apint}s as well.
+     *
+     * @param <T> The type of the number.
+     * @param x The number to pin.
+     *
+     * @return <code>x</code>.
+     *
+     * @since 1.8.3
+     */
+
+    public static <T extends Apfloat> T pin(T x)
+        throws ApfloatRuntimeException
+    {
+        if (x.signum() != 0)
+        {
+            x.getImpl(x.precision()).pin();
+        }
+        return x;
+    }
+
     /**
      * Sum of numbers.
      * The precision used in the additions is only
@@ -2061,6 +2343,20 @@ public class ApfloatMath
         return s;
     }
 
+    // Calculates 1 - x * y, when the product is known to be equal to one to about equalDigits digits.
+    // The implementation may then skip calculating the leading digits that cancel, using a shorter convolution
+    private static Apfloat oneMinusProduct(Apfloat x, Apfloat y, long equalDigits)
+        throws ApfloatRuntimeException
+    {
+        ApfloatImpl impl = x.getImpl(x.precision()).multiplySubtractOne(y.getImpl(y.precision()), equalDigits);
+        if (impl == null)
+        {
+            Apfloat one = new Apfloat(1, Apfloat.INFINITE, x.radix());
+            return one.subtract(x.multiply(y));
+        }
+        return new Apfloat(impl).negate();
+    }
+
     // Extend the precision on last iteration
     private static Apfloat lastIterationExtendPrecision(int iterations, int precisingIteration, Apfloat x)
         throws ApfloatRuntimeException
@@ -2144,6 +2440,9 @@ public class ApfloatMath
         ApfloatMath.radixPiQ = SHUTDOWN_MAP;
         ApfloatMath.radixPiP = SHUTDOWN_MAP;
         ApfloatMath.radixPiInverseRoot = SHUTDOWN_MAP;
+        ApfloatMath.radixE = SHUTDOWN_MAP;
+        ApfloatMath.radixET = SHUTDOWN_MAP;
+        ApfloatMath.radixEQ = SHUTDOWN_MAP;
         ApfloatMath.radixLog = SHUTDOWN_MAP;
         ApfloatMath.radixLogPi = SHUTDOWN_MAP;
     }
@@ -2163,6 +2462,16 @@ public class ApfloatMath
     private static Map<Integer, Apfloat> radixPiInverseRoot = new ConcurrentSoftHashMap<Integer, Apfloat>();
     private static Map<Integer, Long> radixPiTerms = new Hashtable<Integer, Long>();
 
+    // Synchronization keys for e calculation
+    private static ConcurrentMap<Integer, Integer> radixEKeys = new ConcurrentHashMap<Integer, Integer>();
+
+    // Shared cached values related to e for different radixes
+    private static Map<Integer, Apfloat> radixE = new ConcurrentSoftHashMap<Integer, Apfloat>();
+    private static Map<Integer, ECalculator> radixECalculator = new Hashtable<Integer, ECalculator>();
+    private static Map<Integer, Apfloat> radixET = new ConcurrentSoftHashMap<Integer, Apfloat>();
+    private static Map<Integer, Apfloat> radixEQ = new ConcurrentSoftHashMap<Integer, Apfloat>();
+    private static Map<Integer, Long> radixETerms = new Hashtable<Integer, Long>();
+
     // Synchronization keys for logarithm calculation
     private static ConcurrentMap<Integer, Integer> radixLogKeys = new ConcurrentHashMap<Integer, Integer>();
 
@@ -43,15 +43,18 @@ import org.apfloat.spi.Util;
  * <tr><td>64</td><td>65536</td><td>Karatsuba</td></tr>
  * <tr><td>128</td><td>128</td><td>NTT</td></tr>
  * <tr><td>128</td><td>65536</td><td>NTT</td></tr>
- * <tr><td>128</td><td>4294967296</td><td>Karatsuba</td></tr>
+ * <tr><td>128</td><td>4294967296</td><td>Chunked NTT</td></tr>
  * <tr><td>256</td><td>256</td><td>NTT</td></tr>
- * <tr><td>256</td><td>4294967296</td><td>Karatsuba</td></tr>
+ * <tr><td>256</td><td>4294967296</td><td>Chunked NTT</td></tr>
  * <tr><td>512</td><td>512</td><td>NTT</td></tr>
- * <tr><td>512</td><td>4294967296</td><td>NTT</td></tr>
+ * <tr><td>512</td><td>4294967296</td><td>Chunked NTT</td></tr>
  * </table>
  *
+ * When one operand is much longer than the other, the NTT convolution can
+ * be done in chunks of the longer operand with a {@link ChunkedConvolutionStrategy}.
+ *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -72,43 +75,114 @@ public abstract class AbstractConvolutionBuilder
              maxSize = Math.max(size1, size2),
              totalSize = size1 + size2;
 
+        ApfloatContext ctx = ApfloatContext.getContext();
+
         if (minSize == 1)
         {
             return createShortConvolutionStrategy(radix);
         }
-        else if (minSize <= getKaratsubaCutoffPoint())
+        else if (minSize <= getKaratsubaCutoffPoint(ctx))
         {
             return createMediumConvolutionStrategy(radix);
         }
         else
         {
-            float mediumCost = (float) minSize * maxSize,
-                  karatsubaCost = getKaratsubaCostFactor() * (float) Math.pow((double) minSize, LOG2_3) * maxSize / minSize,
-                  nttCost = getNTTCostFactor() * totalSize * Util.log2down(totalSize);
+            NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+
+            NTTStrategy chunkNTTStrategy = null;
+            long chunkSize = 0;
+
+            float nttCostFactor = getNTTCostFactor(ctx),
+                  mediumCost = (float) minSize * maxSize,
+                  karatsubaCost = getKaratsubaCostFactor(ctx) * (float) Math.pow((double) minSize, LOG2_3) * maxSize / minSize,
+                  nttCost = nttCostFactor * totalSize * Util.log2down(totalSize),
+                  chunkedCost = Float.MAX_VALUE;
 
-            if (mediumCost <= Math.min(karatsubaCost, nttCost))
+            long chunkTarget = Math.max(CHUNK_FACTOR * minSize, MINIMUM_CHUNK_LENGTH);
+            if (maxSize > chunkTarget)
+            {
+                // For unbalanced operands, the longer operand can be split to chunks that are convoluted with shorter transforms
+                chunkNTTStrategy = nttBuilder.createNTT(chunkTarget);
+                long chunkLength = chunkNTTStrategy.getTransformLength(chunkTarget),
+                     chunks = (maxSize + chunkLength - minSize - 1) / (chunkLength - minSize);
+                chunkSize = chunkLength - minSize;
+                chunkedCost = nttCostFactor * chunks * chunkLength * Util.log2down(chunkLength) * 2 / 3;      // The shorter operand is transformed only once
+            }
+
+            if (mediumCost <= Math.min(karatsubaCost, Math.min(nttCost, chunkedCost)))
             {
                 return createMediumConvolutionStrategy(radix);
             }
-            else if (karatsubaCost <= nttCost)
+            else if (karatsubaCost <= Math.min(nttCost, chunkedCost))
             {
                 return createKaratsubaConvolutionStrategy(radix);
             }
             else
             {
-                ApfloatContext ctx = ApfloatContext.getContext();
-                NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
                 NTTStrategy nttStrategy = nttBuilder.createNTT(totalSize);
+                long length = nttStrategy.getTransformLength(totalSize);
+
+                if (chunkedCost < nttCostFactor * length * Util.log2down(length))
+                {
+                    // Cheaper than the full transform, including its padding to a supported length
+                    return createChunkedConvolutionStrategy(radix, createThreeNTTConvolutionStrategy(radix, chunkNTTStrategy), chunkSize);
+                }
 
                 return createThreeNTTConvolutionStrategy(radix, nttStrategy);
             }
         }
     }
 
+    /**
+     * Returns a wrapped convolution strategy. Only the NTT convolution can be wrapped,
+     * so if the full convolution would not use the NTT, or the transform length of the
+     * wrapped convolution would not be shorter, then <code>null</code> is returned.
+     *
+     * @param radix The radix that will be used.
+     * @param size1 Length of first data set.
+     * @param size2 Length of second data set.
+     * @param resultSize Minimum length of the cyclic convolution.
+     *
+     * @return A wrapped 3-NTT convolution strategy, or <code>null</code>.
+     *
+     * @since 1.8.3
+     */
+
+    public ConvolutionStrategy createWrappedConvolution(int radix, long size1, long size2, long resultSize)
+    {
+        long totalSize = size1 + size2;
+
+        if (resultSize < Math.max(size1, size2))
+        {
+            throw new IllegalArgumentException("Wrapped convolution length " + resultSize + " is shorter than the data: " + size1 + ", " + size2);
+        }
+        else if (resultSize >= totalSize ||
+                 !(createConvolution(radix, size1, size2, totalSize) instanceof ThreeNTTConvolutionStrategy))
+        {
+            return null;
+        }
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        NTTStrategy nttStrategy = nttBuilder.createNTT(resultSize);
+
+        if (nttStrategy.getTransformLength(resultSize) >= nttBuilder.createNTT(totalSize).getTransformLength(totalSize))
+        {
+            // Rounding up to a supported transform length would not make it any shorter
+            return null;
+        }
+
+        return createWrappedThreeNTTConvolutionStrategy(radix, nttStrategy);
+    }
+
     /**
      * Get the Karatsuba convolution cutoff point.
      * When either operand is shorter than this then the
-     * medium-length convolution strategy should be used instead.
+     * medium-length convolution strategy should be used instead.<p>
+     *
+     * This is the default value, used if the cutoff point is not
+     * set in the {@link ApfloatContext}. The same applies to the
+     * cost factors below.
      *
      * @return The Karatsuba convolution cutoff point.
      *
@@ -192,5 +266,64 @@ public abstract class AbstractConvolutionBuilder
 
     protected abstract ConvolutionStrategy createThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy);
 
+    /**
+     * Create a wrapped 3-NTT convolution strategy.
+     * The default implementation creates a {@link ParallelThreeNTTConvolutionStrategy}.
+     *
+     * @param radix The radix that will be used.
+     * @param nttStrategy The underlying NTT strategy.
+     *
+     * @return A new wrapped 3-NTT convolution strategy.
+     *
+     * @since 1.8.3
+     */
+
+    protected ConvolutionStrategy createWrappedThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    {
+        return new ParallelThreeNTTConvolutionStrategy(radix, nttStrategy, true);
+    }
+
+    /**
+     * Create a chunked convolution strategy for unbalanced operands.
+     * The default implementation creates a {@link ChunkedConvolutionStrategy}.
+     *
+     * @param radix The radix that will be used.
+     * @param convolutionStrategy The convolution strategy for each chunk.
+     * @param chunkSize The size of the chunks of the longer operand.
+     *
+     * @return A new chunked convolution strategy.
+     *
+     * @since 1.8.3
+     */
+
+    protected ConvolutionStrategy createChunkedConvolutionStrategy(int radix, ConvolutionStrategy convolutionStrategy, long chunkSize)
+    {
+        return new ChunkedConvolutionStrategy(radix, convolutionStrategy, chunkSize);
+    }
+
+    // The settings in the context override the defaults of the builder, if they are set
+    private int getKaratsubaCutoffPoint(ApfloatContext ctx)
+    {
+        int karatsubaCutoffPoint = ctx.getKaratsubaCutoffPoint();
+        return (karatsubaCutoffPoint > 0 ? karatsubaCutoffPoint : getKaratsubaCutoffPoint());
+    }
+
+    private float getKaratsubaCostFactor(ApfloatContext ctx)
+    {
+        float karatsubaCostFactor = ctx.getKaratsubaCostFactor();
+        return (karatsubaCostFactor > 0.0f ? karatsubaCostFactor : getKaratsubaCostFactor());
+    }
+
+    private float getNTTCostFactor(ApfloatContext ctx)
+    {
+        float nttCostFactor = ctx.getNTTCostFactor();
+        return (nttCostFactor > 0.0f ? nttCostFactor : getNTTCostFactor());
+    }
+
+    // The transform length for a chunk is about this many times the size of the shorter operand,
+    // but not so short that the overhead of each convolution would dominate
+    private static final int CHUNK_FACTOR = 8;
+    private static final long MINIMUM_CHUNK_LENGTH = 131072;
+
     private static final double LOG2_3 = Math.log(3.0) / Math.log(2.0);
 }
@@ -31,7 +31,7 @@ import org.apfloat.spi.DataStorage;
  * are created.
  *
  * @since 1.7.0
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -73,6 +73,11 @@ public abstract class AbstractDataStorageBuilder
             // Use memory data storage if it can fit in memory
             return createCachedDataStorage();
         }
+        else if (size <= ctx.getMaxOffHeapBlockSize())
+        {
+            // If it can't fit in a heap array, off-heap memory can still be used instead of disk
+            return createOffHeapDataStorage();
+        }
         else
         {
             // If it can't fit in memory then still have to use disk data storage
@@ -126,6 +131,40 @@ public abstract class AbstractDataStorageBuilder
     protected abstract DataStorage createNonCachedDataStorage()
         throws ApfloatRuntimeException;
 
+    /**
+     * Create an off-heap memory data storage.<p>
+     *
+     * The default implementation creates a non-cached data storage,
+     * so subclasses that don't support off-heap memory keep using the disk.
+     *
+     * @return A new off-heap memory data storage.
+     *
+     * @since 1.8.3
+     */
+
+    protected DataStorage createOffHeapDataStorage()
+        throws ApfloatRuntimeException
+    {
+        return createNonCachedDataStorage();
+    }
+
+    /**
+     * Test if the non-cached data storage should be memory-mapped.<p>
+     *
+     * The default is the setting of the current {@link ApfloatContext}.
+     *
+     * @return If the non-cached data storage should be memory-mapped.
+     *
+     * @see ApfloatContext#getMappedDiskDataStorage()
+     *
+     * @since 1.8.3
+     */
+
+    protected boolean isMappedDiskDataStorage()
+    {
+        return ApfloatContext.getContext().getMappedDiskDataStorage();
+    }
+
     /**
      * Test if the data storage is of cached type.
      *
@@ -75,7 +75,7 @@ public abstract class AbstractNTTBuilder
         }
         else
         {
-            // The whole transform won't fit into available memory, so use a two-pass disk based approach
+            // The whole transform won't fit into available memory, so use a two-pass approach with the data on disk or in off-heap memory
             nttStrategy = createTwoPassFNTStrategy(power2size);
         }
 
@@ -0,0 +1,379 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apfloat.ApfloatContext;
+
+/**
+ * Pool of reusable scratch arrays. The block-based data storages, like the
+ * {@link DiskDataStorage} and the {@link OffHeapDataStorage}, copy the data
+ * to temporary arrays for access. Typically arrays of the same few sizes are
+ * needed over and over again, e.g. for the blocks of the {@link TwoPassFNTStrategy},
+ * so instead of allocating a new array each time and leaving the old ones for
+ * the garbage collector, the array is returned to this pool when the
+ * <code>ArrayAccess</code> is closed, and it's reused for the next array of the
+ * same type and length. Similarly the memory data storages allocate their data
+ * from the pool, and return it when the data storage is released, e.g. the
+ * temporary data of the {@link ThreeNTTConvolutionStrategy}.<p>
+ *
+ * The arrays are pooled by their exact type and length, since the array
+ * accesses depend on the array length. The pooled arrays are softly
+ * referenced, so the garbage collector can still free them if memory runs
+ * low. In addition, the total size of the pooled arrays is limited to the
+ * maximum memory block size of the current {@link ApfloatContext}. When an
+ * array is released to a full pool, the arrays that were released the longest time ago are evicted to make room
+ * for it, and left for the garbage collector.<p>
+ *
+ * Small arrays are not pooled, since allocating them is cheap anyway.
+ * An array must not be accessed in any way after it has been released to
+ * the pool. This class is thread-safe.
+ *
+ * @see ApfloatContext#getMaxMemoryBlockSize()
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class ArrayPool
+{
+    // Reference to a pooled array, that is taken out of the pool exactly once, when the array is allocated, evicted or cleared
+    private static class PooledReference
+        extends SoftReference<Object>
+    {
+        public PooledReference(Object array, long size, Queue<PooledReference> queue)
+        {
+            super(array, ArrayPool.referenceQueue);
+            this.size = size;
+            this.queue = queue;
+        }
+
+        public boolean take()
+        {
+            if (this.taken.compareAndSet(false, true))
+            {
+                ArrayPool.size.addAndGet(-this.size);
+                return true;
+            }
+            return false;
+        }
+
+        public Queue<PooledReference> getQueue()
+        {
+            return this.queue;
+        }
+
+        private long size;
+        private Queue<PooledReference> queue;
+        private AtomicBoolean taken = new AtomicBoolean();
+    }
+
+    private ArrayPool()
+    {
+    }
+
+    /**
+     * Get an array of the specified type and length. A pooled array
+     * is returned if one is available, otherwise a new array is allocated.
+     *
+     * @param arrayType The array type, e.g. <code>long[].class</code>.
+     * @param length The length of the array.
+     * @param clear If the array must be filled with zeros. If not, a pooled array contains whatever data it had when it was released.
+     *
+     * @return An array of the specified type and length.
+     */
+
+    public static <T> T allocate(Class<T> arrayType, int length, boolean clear)
+    {
+        if ((long) length * getElementSize(arrayType) < MINIMUM_SIZE)
+        {
+            // Not worth pooling
+            return arrayType.cast(Array.newInstance(arrayType.getComponentType(), length));
+        }
+
+        expunge();
+
+        Queue<PooledReference> queue = getQueue(arrayType, length, false);
+        if (queue != null)
+        {
+            PooledReference reference;
+            while ((reference = queue.poll()) != null)
+            {
+                if (!reference.take())
+                {
+                    // Already evicted or cleared
+                    continue;
+                }
+                ArrayPool.ages.remove(reference);
+                Object array = reference.get();
+                if (array != null)
+                {
+                    ArrayPool.hits.incrementAndGet();
+                    if (clear)
+                    {
+                        zero(array);
+                    }
+                    return arrayType.cast(array);
+                }
+            }
+        }
+
+        ArrayPool.misses.incrementAndGet();
+        return arrayType.cast(Array.newInstance(arrayType.getComponentType(), length));
+    }
+
+    /**
+     * Release an array to the pool. If the pool is full, the array is
+     * left for the garbage collector.
+     *
+     * @param array The array to release, obtained from {@link #allocate(Class,int,boolean)}. Can be <code>null</code>, in which case nothing is done.
+     */
+
+    public static void release(Object array)
+    {
+        if (array == null)
+        {
+            return;
+        }
+
+        int length = Array.getLength(array);
+        long size = (long) length * getElementSize(array.getClass()),
+             maxSize = ApfloatContext.getContext().getMaxMemoryBlockSize();
+
+        if (size < MINIMUM_SIZE)
+        {
+            return;
+        }
+
+        expunge();
+
+        // Make room by evicting the oldest arrays, since the most recently used sizes are the most likely to be needed again
+        while (size <= maxSize && ArrayPool.size.get() + size > maxSize && evict())
+        {
+            ArrayPool.evictions.incrementAndGet();
+        }
+
+        if (ArrayPool.size.addAndGet(size) > maxSize)
+        {
+            ArrayPool.size.addAndGet(-size);
+            ArrayPool.discards.incrementAndGet();
+            return;
+        }
+
+        ArrayPool.releases.incrementAndGet();
+        Queue<PooledReference> queue = getQueue(array.getClass(), length, true);
+        PooledReference reference = new PooledReference(array, size, queue);
+        ArrayPool.ages.add(reference);
+        queue.add(reference);
+    }
+
+    /**
+     * Remove all arrays from the pool.
+     */
+
+    public static void clear()
+    {
+        PooledReference reference;
+        while ((reference = ArrayPool.ages.poll()) != null)
+        {
+            if (reference.take())
+            {
+                reference.getQueue().remove(reference);
+            }
+        }
+    }
+
+    /**
+     * Get the number of allocations that were served from the pool.
+     *
+     * @return The number of allocations that reused a pooled array.
+     */
+
+    public static long getHitCount()
+    {
+        return ArrayPool.hits.get();
+    }
+
+    /**
+     * Get the number of allocations that had to allocate a new array.
+     *
+     * @return The number of allocations that allocated a new array.
+     */
+
+    public static long getMissCount()
+    {
+        return ArrayPool.misses.get();
+    }
+
+    /**
+     * Get the number of arrays that were released to the pool.
+     *
+     * @return The number of arrays that were pooled.
+     */
+
+    public static long getReleaseCount()
+    {
+        return ArrayPool.releases.get();
+    }
+
+    /**
+     * Get the number of released arrays that were discarded, since they didn't fit in the pool.
+     *
+     * @return The number of arrays that were not pooled.
+     */
+
+    public static long getDiscardCount()
+    {
+        return ArrayPool.discards.get();
+    }
+
+    /**
+     * Get the number of pooled arrays that were evicted to make room for released arrays.
+     *
+     * @return The number of arrays that were evicted from the pool.
+     */
+
+    public static long getEvictionCount()
+    {
+        return ArrayPool.evictions.get();
+    }
+
+    /**
+     * Get the total size of the arrays currently in the pool.
+     *
+     * @return The size of the pooled arrays, in bytes.
+     */
+
+    public static long getSize()
+    {
+        expunge();
+
+        return ArrayPool.size.get();
+    }
+
+    private static Queue<PooledReference> getQueue(Class<?> arrayType, int length, boolean create)
+    {
+        ConcurrentMap<Integer, Queue<PooledReference>> queues = ArrayPool.pool.get(arrayType);
+        if (queues == null)
+        {
+            if (!create)
+            {
+                return null;
+            }
+            ArrayPool.pool.putIfAbsent(arrayType, new ConcurrentHashMap<Integer, Queue<PooledReference>>());
+            queues = ArrayPool.pool.get(arrayType);
+        }
+        Queue<PooledReference> queue = queues.get(length);
+        if (queue == null && create)
+        {
+            queues.putIfAbsent(length, new ConcurrentLinkedQueue<PooledReference>());
+            queue = queues.get(length);
+        }
+        return queue;
+    }
+
+    // Remove the array that was released to the pool the longest time ago
+    private static boolean evict()
+    {
+        PooledReference reference;
+        while ((reference = ArrayPool.ages.poll()) != null)
+        {
+            if (reference.take())
+            {
+                reference.getQueue().remove(reference);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Account for the arrays that were freed by the garbage collector; the cleared references are removed from the queues when polled
+    private static void expunge()
+    {
+        Reference<?> reference;
+        while ((reference = ArrayPool.referenceQueue.poll()) != null)
+        {
+            PooledReference pooledReference = (PooledReference) reference;
+            if (pooledReference.take())
+            {
+                ArrayPool.ages.remove(pooledReference);
+                pooledReference.getQueue().remove(pooledReference);
+            }
+        }
+    }
+
+    private static int getElementSize(Class<?> arrayType)
+    {
+        return (arrayType == long[].class || arrayType == double[].class ? 8 :
+                arrayType == int[].class || arrayType == float[].class ? 4 :
+                arrayType == short[].class || arrayType == char[].class ? 2 :
+                arrayType == byte[].class || arrayType == boolean[].class ? 1 :
+                8);     // Object references, at most 8 bytes
+    }
+
+    private static void zero(Object array)
+    {
+        if (array instanceof long[])
+        {
+            Arrays.fill((long[]) array, 0);
+        }
+        else if (array instanceof int[])
+        {
+            Arrays.fill((int[]) array, 0);
+        }
+        else if (array instanceof double[])
+        {
+            Arrays.fill((double[]) array, 0);
+        }
+        else if (array instanceof float[])
+        {
+            Arrays.fill((float[]) array, 0);
+        }
+        else
+        {
+            // Other array types are not used by the data storages, but clear them anyway
+            int length = Array.getLength(array);
+            System.arraycopy(Array.newInstance(array.getClass().getComponentType(), length), 0, array, 0, length);
+        }
+    }
+
+    private static final long MINIMUM_SIZE = 4096;     // Smaller arrays are cheaper to allocate than to pool
+
+    private static ConcurrentMap<Class<?>, ConcurrentMap<Integer, Queue<PooledReference>>> pool = new ConcurrentHashMap<Class<?>, ConcurrentMap<Integer, Queue<PooledReference>>>();
+    private static Queue<PooledReference> ages = new ConcurrentLinkedQueue<PooledReference>();   // All pooled arrays, the oldest first
+    private static ReferenceQueue<Object> referenceQueue = new ReferenceQueue<Object>();
+    private static AtomicLong size = new AtomicLong(),
+                              hits = new AtomicLong(),
+                              misses = new AtomicLong(),
+                              releases = new AtomicLong(),
+                              discards = new AtomicLong(),
+                              evictions = new AtomicLong();
+}
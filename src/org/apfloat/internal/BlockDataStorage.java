@@ -0,0 +1,361 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ArrayAccess;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.MatrixStrategy;
+
+/**
+ * Abstract base class for a data storage that can't be accessed directly
+ * as a Java array. The data is accessed by copying blocks of it to and from
+ * arrays, including the matrix accesses of e.g. the {@link TwoPassFNTStrategy}.
+ * This class contains the common functionality independent of the element type
+ * and of where the data is actually stored.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public abstract class BlockDataStorage
+    extends DataStorage
+{
+    /**
+     * Default constructor.
+     */
+
+    protected BlockDataStorage()
+    {
+    }
+
+    /**
+     * Subsequence constructor.
+     *
+     * @param blockDataStorage The originating data storage.
+     * @param offset The subsequence starting position.
+     * @param length The subsequence length.
+     */
+
+    protected BlockDataStorage(BlockDataStorage blockDataStorage, long offset, long length)
+    {
+        super(blockDataStorage, offset, length);
+    }
+
+    @Override
+    protected synchronized ArrayAccess implGetArray(int mode, int startColumn, int columns, int rows)
+        throws ApfloatRuntimeException
+    {
+        int width = (int) (getSize() / rows);
+
+        if (columns != (columns & -columns) || rows != (rows & -rows) || startColumn + columns > width)
+        {
+            throw new ApfloatInternalException("Invalid size");
+        }
+
+        ArrayAccess arrayAccess = createArrayAccess(mode, startColumn, columns, rows);
+
+        if ((mode & READ) != 0)
+        {
+            long readPosition = startColumn;
+            int writePosition = 0;
+            for (int i = 0; i < rows; i++)
+            {
+                readToArray(readPosition, arrayAccess, writePosition, columns);
+
+                readPosition += width;
+                writePosition += columns;
+            }
+        }
+
+        return arrayAccess;
+    }
+
+    @Override
+    protected synchronized ArrayAccess implGetTransposedArray(int mode, int startColumn, int columns, int rows)
+        throws ApfloatRuntimeException
+    {
+        int width = (int) (getSize() / rows);
+
+        if (columns != (columns & -columns) || rows != (rows & -rows) || startColumn + columns > width)
+        {
+            throw new ApfloatInternalException("Invalid size");
+        }
+
+        int blockSize = columns * rows,
+            b = Math.min(columns, rows);
+        ArrayAccess arrayAccess = createTransposedArrayAccess(mode, startColumn, columns, rows);
+
+        if ((mode & READ) != 0)
+        {
+            // Read the data from the data storage in b x b blocks
+            ApfloatContext ctx = ApfloatContext.getContext();
+            MatrixStrategy matrixStrategy = ctx.getBuilderFactory().getMatrixBuilder().createMatrix();
+
+            if (columns < rows)
+            {
+                // Taller than wide section
+                long readPosition = startColumn;
+                for (int i = 0; i < rows; i += b)
+                {
+                    int writePosition = i;
+
+                    for (int j = 0; j < b; j++)
+                    {
+                        readToArray(readPosition, arrayAccess, writePosition, b);
+
+                        readPosition += width;
+                        writePosition += rows;
+                    }
+
+                    // Transpose the b x b block
+
+                    ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
+                    matrixStrategy.transposeSquare(subArrayAccess, b, rows);
+                }
+            }
+            else
+            {
+                // Wider than tall section
+                for (int i = 0; i < b; i++)
+                {
+                    long readPosition = startColumn + i * width;
+                    int writePosition = i * b;
+
+                    for (int j = 0; j < columns; j += b)
+                    {
+                        readToArray(readPosition, arrayAccess, writePosition, b);
+
+                        readPosition += b;
+                        writePosition += b * b;
+                    }
+                }
+
+                for (int i = 0; i < blockSize; i += b * b)
+                {
+                    // Transpose the b x b block
+
+                    ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
+                    matrixStrategy.transposeSquare(subArrayAccess, b, b);
+                }
+            }
+        }
+
+        return arrayAccess;
+    }
+
+    /**
+     * Write the data back to the same location in this data storage that was retrieved with
+     * {@link #implGetArray(int,int,int,int)}.
+     *
+     * @param arrayAccess The transposed array access.
+     * @param startColumn The starting column where data is stored.
+     * @param columns The number of columns of data.
+     * @param rows The number of rows of data.
+     *
+     * @since 1.7.0
+     */
+
+    protected synchronized void setArray(ArrayAccess arrayAccess, int startColumn, int columns, int rows)
+        throws ApfloatRuntimeException
+    {
+        int width = (int) (getSize() / rows);
+
+        int readPosition = 0;
+        long writePosition = startColumn;
+        for (int i = 0; i < rows; i++)
+        {
+            writeFromArray(arrayAccess, readPosition, writePosition, columns);
+
+            readPosition += columns;
+            writePosition += width;
+        }
+    }
+
+    /**
+     * Write the data back to the same location in this data storage that was retrieved with
+     * {@link #implGetTransposedArray(int,int,int,int)}.
+     *
+     * @param arrayAccess The transposed array access.
+     * @param startColumn The starting column where data is stored.
+     * @param columns The number of columns of data.
+     * @param rows The number of rows of data.
+     *
+     * @since 1.7.0
+     */
+
+    protected synchronized void setTransposedArray(ArrayAccess arrayAccess, int startColumn, int columns, int rows)
+        throws ApfloatRuntimeException
+    {
+        int width = (int) (getSize() / rows);
+
+        int blockSize = arrayAccess.getLength(),
+            b = Math.min(columns, rows);
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        MatrixStrategy matrixStrategy = ctx.getBuilderFactory().getMatrixBuilder().createMatrix();
+
+        if (columns < rows)
+        {
+            // Taller than wide section
+            long writePosition = startColumn;
+            for (int i = 0; i < rows; i += b)
+            {
+                int readPosition = i;
+
+                // Transpose the b x b block
+
+                ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
+                matrixStrategy.transposeSquare(subArrayAccess, b, rows);
+
+                for (int j = 0; j < b; j++)
+                {
+                    writeFromArray(arrayAccess, readPosition, writePosition, b);
+
+                    readPosition += rows;
+                    writePosition += width;
+                }
+            }
+        }
+        else
+        {
+            // Wider than tall section
+            for (int i = 0; i < blockSize; i += b * b)
+            {
+                // Transpose the b x b block
+
+                ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
+                matrixStrategy.transposeSquare(subArrayAccess, b, b);
+            }
+
+            for (int i = 0; i < b; i++)
+            {
+                long writePosition = startColumn + i * width;
+                int readPosition = i * b;
+
+                for (int j = 0; j < columns; j += b)
+                {
+                    writeFromArray(arrayAccess, readPosition, writePosition, b);
+
+                    readPosition += b * b;
+                    writePosition += b;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read data from this data storage to an array. Used for getting the data of
+     * {@link #implGetArray(int,int,int,int)} and {@link #implGetTransposedArray(int,int,int,int)}.
+     * The default implementation reads the data using {@link #getArray(int,long,int)}.
+     *
+     * @param readPosition The starting position of the data in this data storage.
+     * @param arrayAccess The array access to read the data to.
+     * @param writePosition The starting position in the array access.
+     * @param length The number of elements to read.
+     *
+     * @since 1.8.3
+     */
+
+    protected void readToArray(long readPosition, ArrayAccess arrayAccess, int writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        ArrayAccess readArrayAccess = getArray(READ, readPosition, length);
+        System.arraycopy(readArrayAccess.getData(), readArrayAccess.getOffset(), arrayAccess.getData(), arrayAccess.getOffset() + writePosition, length);
+        readArrayAccess.close();
+    }
+
+    /**
+     * Write data from an array to this data storage. Used for writing back the data of
+     * {@link #implGetArray(int,int,int,int)} and {@link #implGetTransposedArray(int,int,int,int)}.
+     * The default implementation writes the data using {@link #getArray(int,long,int)}.
+     *
+     * @param arrayAccess The array access to write the data from.
+     * @param readPosition The starting position in the array access.
+     * @param writePosition The starting position of the data in this data storage.
+     * @param length The number of elements to write.
+     *
+     * @since 1.8.3
+     */
+
+    protected void writeFromArray(ArrayAccess arrayAccess, int readPosition, long writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        ArrayAccess writeArrayAccess = getArray(WRITE, writePosition, length);
+        System.arraycopy(arrayAccess.getData(), arrayAccess.getOffset() + readPosition, writeArrayAccess.getData(), writeArrayAccess.getOffset(), length);
+        writeArrayAccess.close();
+    }
+
+    /**
+     * Create an empty ArrayAccess.
+     *
+     * @param mode Whether the array is prepared for reading, writing or both. The value should be {@link #READ}, {@link #WRITE} or a combination of these.
+     * @param startColumn The starting column where data is stored.
+     * @param columns The number of columns of data.
+     * @param rows The number of rows of data.
+     *
+     * @return Access to an empty array of the specified size and position.
+     *
+     * @since 1.7.0
+     */
+
+    protected abstract ArrayAccess createArrayAccess(int mode, int startColumn, int columns, int rows);
+
+    /**
+     * Create an empty transposed ArrayAccess.
+     *
+     * @param mode Whether the array is prepared for reading, writing or both. The value should be {@link #READ}, {@link #WRITE} or a combination of these.
+     * @param startColumn The starting column where data is stored.
+     * @param columns The number of columns of data.
+     * @param rows The number of rows of data.
+     *
+     * @return Access to an empty array of the specified size and position.
+     *
+     * @since 1.7.0
+     */
+
+    protected abstract ArrayAccess createTransposedArrayAccess(int mode, int startColumn, int columns, int rows);
+
+
+    /**
+     * Convenience method for getting the block size (in bytes) for the
+     * current {@link ApfloatContext}.
+     *
+     * @return I/O block size, in bytes.
+     */
+
+    protected static int getBlockSize()
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        return ctx.getBlockSize();
+    }
+
+    /**
+     * Size of the element type, in bytes.
+     *
+     * @return Size of the element type, in bytes.
+     */
+
+    protected abstract int getUnitSize();
+
+
+    private static final long serialVersionUID = -2283911547183026429L;
+}
@@ -0,0 +1,423 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.BuilderFactory;
+import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.NTTBuilder;
+import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.Util;
+
+/**
+ * Measures the performance settings of the {@link ApfloatContext} on the
+ * current machine, and writes them to an <code>apfloat.properties</code> file.<p>
+ *
+ * The L1 cache size selects between the NTT variants: the simple table
+ * FNT is used for transforms that fit in the L1 cache, and the six-step FNT
+ * for longer transforms. So it's set to the largest value for which the table
+ * FNT is still faster than the six-step FNT. The two-pass FNT is selected by
+ * the maximum memory block size, which is a memory limit and not tuned here.
+ * The other cache settings are tuned by timing a NTT multiplication with
+ * different values of each setting, and keeping the fastest.<p>
+ *
+ * The convolution settings are fitted from the timings of each convolution
+ * algorithm, at operand sizes where the algorithm is actually used. The cost
+ * factors are relative to the basic O(n<sup>2</sup>) algorithm, so they are
+ * comparable to the defaults in e.g. {@link LongConstants}.<p>
+ *
+ * The convolution settings depend on the builder factory, so the
+ * builder factory that was used is also written to the file.
+ * The program is run as
+ *
+ * <pre>
+ * java org.apfloat.internal.Calibrator [fileName] [builderFactory]
+ * </pre>
+ *
+ * where the defaults are <code>apfloat.properties</code> and the
+ * builder factory of the current context.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class Calibrator
+{
+    private Calibrator()
+    {
+    }
+
+    /**
+     * Command-line entry point.
+     *
+     * @param args Command-line parameters.
+     *
+     * @exception IOException In case writing the file fails.
+     */
+
+    public static void main(String[] args)
+        throws IOException, ApfloatRuntimeException
+    {
+        if (args.length > 2)
+        {
+            System.err.println("USAGE: Calibrator [fileName] [builderFactory]");
+
+            return;
+        }
+
+        String fileName = (args.length > 0 ? args[0] : "apfloat.properties");
+        ApfloatContext ctx = ApfloatContext.getContext();
+        if (args.length > 1)
+        {
+            ctx.setProperty(ApfloatContext.BUILDER_FACTORY, args[1]);
+        }
+
+        Properties properties = calibrate();
+
+        PrintWriter out = new PrintWriter(new FileWriter(fileName));
+        out.println("# Calibrated for " + properties.getProperty(ApfloatContext.BUILDER_FACTORY));
+        for (String propertyName : PROPERTY_NAMES)
+        {
+            out.println(propertyName + '=' + properties.getProperty(propertyName));
+            System.out.println(propertyName + " = " + properties.getProperty(propertyName));
+        }
+        out.close();
+
+        if (out.checkError())
+        {
+            throw new IOException("Error writing " + fileName);
+        }
+    }
+
+    /**
+     * Measures the settings for the builder factory of the current context.
+     * The measured values are also set to the current context.
+     *
+     * @return The measured settings, and the builder factory.
+     */
+
+    public static Properties calibrate()
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+
+        // The cache settings affect the NTT, so set them first
+        calibrateNTTVariants();
+        calibrateCache(ApfloatContext.CACHE_L2_SIZE, CACHE_L2_SIZES);
+        calibrateCache(ApfloatContext.CACHE_BURST, CACHE_BURSTS);
+        calibrateCache(ApfloatContext.BLOCK_SIZE, BLOCK_SIZES);
+
+        calibrateConvolution();
+
+        Properties properties = new Properties();
+        for (String propertyName : PROPERTY_NAMES)
+        {
+            properties.setProperty(propertyName, ctx.getProperty(propertyName));
+        }
+
+        return properties;
+    }
+
+    // Set the property to the value with which a NTT multiplication is the fastest
+    private static void calibrateCache(String propertyName, int[] values)
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        AbstractConvolutionBuilder convolutionBuilder = getConvolutionBuilder();
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        int radix = ctx.getDefaultRadix();
+
+        DataStorage x = createDataStorage(CACHE_TEST_SIZE),
+                    y = createDataStorage(CACHE_TEST_SIZE);
+
+        int bestValue = 0;
+        double bestTime = Double.MAX_VALUE;
+
+        for (int value : values)
+        {
+            ctx.setProperty(propertyName, String.valueOf(value));
+            ConvolutionStrategy convolutionStrategy = convolutionBuilder.createThreeNTTConvolutionStrategy(radix, nttBuilder.createNTT(2 * CACHE_TEST_SIZE));
+            double time = time(convolutionStrategy, x, y);
+            if (time < bestTime)
+            {
+                bestValue = value;
+                bestTime = time;
+            }
+        }
+
+        ctx.setProperty(propertyName, String.valueOf(bestValue));
+    }
+
+    // Set the L1 cache size to the largest value where the table FNT is still faster than the six-step FNT
+    private static void calibrateNTTVariants()
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        AbstractNTTBuilder nttBuilder = getNTTBuilder();
+
+        int bestValue = CACHE_L1_SIZES[0];
+
+        for (int value : CACHE_L1_SIZES)
+        {
+            // The six-step FNT uses the L1 cache size for the transposition, too
+            ctx.setCacheL1Size(value);
+            long length = value / builderFactory.getElementSize() / 2;     // The longest transform that uses the table FNT with this setting
+            DataStorage dataStorage = createDataStorage(length);
+            double simpleTime = time(nttBuilder.createSimpleFNTStrategy(length), dataStorage),
+                   sixStepTime = time(nttBuilder.createSixStepFNTStrategy(length), dataStorage);
+            if (simpleTime <= sixStepTime)
+            {
+                bestValue = value;
+            }
+        }
+
+        ctx.setCacheL1Size(bestValue);
+    }
+
+    private static void calibrateConvolution()
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        AbstractConvolutionBuilder convolutionBuilder = getConvolutionBuilder();
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        int radix = ctx.getDefaultRadix();
+
+        // Time of the basic O(n^2) algorithm per n^2, the unit of all the cost factors
+        double[] units = new double[MEDIUM_TEST_SIZES.length];
+        for (int i = 0; i < MEDIUM_TEST_SIZES.length; i++)
+        {
+            long size = MEDIUM_TEST_SIZES[i];
+            units[i] = time(convolutionBuilder.createMediumConvolutionStrategy(radix), size) / ((double) size * size);
+        }
+        double unit = median(units);
+
+        // The Karatsuba algorithm recurses down to the cutoff point, so find the fastest one
+        int bestCutoffPoint = 0;
+        double bestTime = Double.MAX_VALUE;
+        DataStorage x = createDataStorage(CUTOFF_TEST_SIZE),
+                    y = createDataStorage(CUTOFF_TEST_SIZE);
+        for (int cutoffPoint : CUTOFF_POINTS)
+        {
+            ctx.setKaratsubaCutoffPoint(cutoffPoint);
+            double time = time(convolutionBuilder.createKaratsubaConvolutionStrategy(radix), x, y);
+            if (time < bestTime)
+            {
+                bestCutoffPoint = cutoffPoint;
+                bestTime = time;
+            }
+        }
+        ctx.setKaratsubaCutoffPoint(bestCutoffPoint);
+
+        double[] factors = new double[KARATSUBA_TEST_SIZES.length];
+        for (int i = 0; i < KARATSUBA_TEST_SIZES.length; i++)
+        {
+            long size = KARATSUBA_TEST_SIZES[i];
+            factors[i] = time(convolutionBuilder.createKaratsubaConvolutionStrategy(radix), size) / (unit * Math.pow((double) size, LOG2_3));
+        }
+        ctx.setKaratsubaCostFactor(round(median(factors)));
+
+        factors = new double[NTT_TEST_SIZES.length];
+        for (int i = 0; i < NTT_TEST_SIZES.length; i++)
+        {
+            long size = NTT_TEST_SIZES[i],
+                 totalSize = 2 * size;
+            factors[i] = time(convolutionBuilder.createThreeNTTConvolutionStrategy(radix, nttBuilder.createNTT(totalSize)), size) / (unit * totalSize * Util.log2down(totalSize));
+        }
+        ctx.setNTTCostFactor(round(median(factors)));
+    }
+
+    private static AbstractConvolutionBuilder getConvolutionBuilder()
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+
+        if (!(builderFactory.getConvolutionBuilder() instanceof AbstractConvolutionBuilder))
+        {
+            throw new ApfloatInternalException("Convolution builder " + builderFactory.getConvolutionBuilder().getClass().getName() + " can't be calibrated");
+        }
+
+        return (AbstractConvolutionBuilder) builderFactory.getConvolutionBuilder();
+    }
+
+    private static AbstractNTTBuilder getNTTBuilder()
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+
+        if (!(builderFactory.getNTTBuilder() instanceof AbstractNTTBuilder))
+        {
+            throw new ApfloatInternalException("NTT builder " + builderFactory.getNTTBuilder().getClass().getName() + " can't be calibrated");
+        }
+
+        return (AbstractNTTBuilder) builderFactory.getNTTBuilder();
+    }
+
+    // Random data, the digits are less than the radix so they are less than the base too
+    private static DataStorage createDataStorage(long size)
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        Class<?> elementType = builderFactory.getElementType();
+        int radix = ctx.getDefaultRadix();
+
+        DataStorage dataStorage = builderFactory.getDataStorageBuilder().createDataStorage(size * builderFactory.getElementSize());
+        dataStorage.setSize(size);
+
+        DataStorage.Iterator iterator = dataStorage.iterator(DataStorage.WRITE, 0, size);
+        while (iterator.hasNext())
+        {
+            int digit = RANDOM.nextInt(radix);
+            if (elementType == Integer.TYPE)
+            {
+                iterator.setInt(digit);
+            }
+            else if (elementType == Long.TYPE)
+            {
+                iterator.setLong(digit);
+            }
+            else if (elementType == Float.TYPE)
+            {
+                iterator.setFloat(digit);
+            }
+            else
+            {
+                iterator.setDouble(digit);
+            }
+            iterator.next();
+        }
+
+        return dataStorage;
+    }
+
+    private static double time(ConvolutionStrategy convolutionStrategy, long size)
+    {
+        return time(convolutionStrategy, createDataStorage(size), createDataStorage(size));
+    }
+
+    // Nanoseconds for one convolution
+    private static double time(final ConvolutionStrategy convolutionStrategy, final DataStorage x, final DataStorage y)
+    {
+        final long resultSize = x.getSize() + y.getSize();
+
+        return time(new Runnable()
+        {
+            public void run()
+            {
+                convolutionStrategy.convolute(x, y, resultSize);
+            }
+        });
+    }
+
+    // Nanoseconds for one forward and inverse transform, which keeps the data in the range of the modulus
+    private static double time(final NTTStrategy nttStrategy, final DataStorage dataStorage)
+    {
+        final long length = dataStorage.getSize();
+
+        return time(new Runnable()
+        {
+            public void run()
+            {
+                nttStrategy.transform(dataStorage, 0);
+                nttStrategy.inverseTransform(dataStorage, 0, length);
+            }
+        });
+    }
+
+    // Nanoseconds for one operation, the best of a few rounds that are long enough to time
+    private static double time(Runnable operation)
+    {
+        // Warm up long enough for the code to be compiled, otherwise the timings mostly measure the compiler
+        round(operation, WARMUP_TIME);
+
+        double bestTime = Double.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            bestTime = Math.min(bestTime, round(operation, MINIMUM_ROUND_TIME));
+        }
+
+        return bestTime;
+    }
+
+    // Repeat the operation for at least the specified time, and return the average time of one operation
+    private static double round(Runnable operation, long minimumTime)
+    {
+        long count = 0,
+             start = System.nanoTime(),
+             time;
+        do
+        {
+            operation.run();
+            count++;
+            time = System.nanoTime() - start;
+        } while (time < minimumTime);
+
+        return (double) time / count;
+    }
+
+    private static double median(double[] values)
+    {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // To one decimal, like the default cost factors
+    private static float round(double value)
+    {
+        return Math.max(Math.round(value * 10.0), 1) / 10.0f;
+    }
+
+    private static final String[] PROPERTY_NAMES = { ApfloatContext.BUILDER_FACTORY,
+                                                     ApfloatContext.CACHE_L1_SIZE,
+                                                     ApfloatContext.CACHE_L2_SIZE,
+                                                     ApfloatContext.CACHE_BURST,
+                                                     ApfloatContext.BLOCK_SIZE,
+                                                     ApfloatContext.KARATSUBA_CUTOFF_POINT,
+                                                     ApfloatContext.KARATSUBA_COST_FACTOR,
+                                                     ApfloatContext.NTT_COST_FACTOR };
+
+    private static final int[] CACHE_L1_SIZES = { 8192, 16384, 32768, 65536 },
+                               CACHE_L2_SIZES = { 262144, 524288, 1048576, 2097152, 4194304, 8388608 },
+                               CACHE_BURSTS = { 32, 64, 128 },
+                               BLOCK_SIZES = { 16384, 65536, 262144, 1048576 },
+                               CUTOFF_POINTS = { 8, 12, 16, 24, 32, 48, 64 };
+
+    // Each algorithm is measured at sizes where it is used
+    private static final long CACHE_TEST_SIZE = 131072,
+                              CUTOFF_TEST_SIZE = 256;
+    private static final long[] MEDIUM_TEST_SIZES = { 16, 32, 64 },
+                                KARATSUBA_TEST_SIZES = { 64, 128, 256 },
+                                NTT_TEST_SIZES = { 1024, 2048, 4096 };
+
+    private static final int ROUNDS = 3;
+    private static final long WARMUP_TIME = 200000000L,
+                              MINIMUM_ROUND_TIME = 20000000L;
+
+    private static final Random RANDOM = new Random(0);
+
+    private static final double LOG2_3 = Math.log(3.0) / Math.log(2.0);
+}
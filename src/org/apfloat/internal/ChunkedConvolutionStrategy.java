@@ -0,0 +1,150 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.AdditionStrategy;
+import org.apfloat.spi.BuilderFactory;
+import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.DataStorageBuilder;
+import org.apfloat.spi.DataStorage;
+
+/**
+ * Convolution strategy for unbalanced operands, where one operand
+ * is much longer than the other. The longer operand is split into
+ * chunks, each chunk is convoluted with the shorter operand using
+ * another convolution strategy, and the results are added together
+ * with the appropriate overlap.<p>
+ *
+ * Compared to one convolution of the full size, the transforms are
+ * much shorter, and the shorter operand is pinned so that e.g. a
+ * {@link ThreeNTTConvolutionStrategy} transforms it only once for
+ * all the chunks.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class ChunkedConvolutionStrategy
+    implements ConvolutionStrategy
+{
+    /**
+     * Creates a new chunked convolution strategy.
+     *
+     * @param radix The radix that will be used.
+     * @param convolutionStrategy The convolution strategy used for each chunk.
+     * @param chunkSize The size of the chunks that the longer operand is split into. Must not be less than the size of the shorter operand.
+     */
+
+    public ChunkedConvolutionStrategy(int radix, ConvolutionStrategy convolutionStrategy, long chunkSize)
+    {
+        this.radix = radix;
+        this.convolutionStrategy = convolutionStrategy;
+        this.chunkSize = chunkSize;
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        Class<?> elementType = builderFactory.getElementType();
+
+        return doConvolute(elementType, x, y, resultSize);
+    }
+
+    private <T> DataStorage doConvolute(Class<T> elementType, DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        DataStorage shortStorage, longStorage;
+
+        if (x.getSize() > y.getSize())
+        {
+            shortStorage = y;
+            longStorage = x;
+        }
+        else
+        {
+            shortStorage = x;
+            longStorage = y;
+        }
+
+        long shortSize = shortStorage.getSize(),
+             longSize = longStorage.getSize(),
+             size = shortSize + longSize;
+
+        if (this.chunkSize < shortSize)
+        {
+            throw new ApfloatInternalException("Chunk size " + this.chunkSize + " is less than the shorter operand size " + shortSize);
+        }
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        DataStorageBuilder dataStorageBuilder = builderFactory.getDataStorageBuilder();
+        AdditionStrategy<T> additionStrategy = builderFactory.getAdditionBuilder(elementType).createAddition(this.radix);
+
+        if (!shortStorage.isPinned())
+        {
+            // Pin a copy of the shorter operand, so that its transform can be reused for all the chunks
+            DataStorage tmp = dataStorageBuilder.createDataStorage(shortSize * builderFactory.getElementSize());
+            tmp.copyFrom(shortStorage);
+            tmp.setReadOnly();
+            tmp.pin();
+            shortStorage = tmp;
+        }
+
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * builderFactory.getElementSize());
+        resultStorage.setSize(size);
+
+        // Calculate the chunks starting from the least significant end, the last chunk is the shortest
+        DataStorage.Iterator dst = resultStorage.iterator(DataStorage.WRITE, size, 0),
+                             src1 = null;
+        T carry = additionStrategy.zero();
+        long i = longSize;
+
+        do
+        {
+            long xSize = Math.min(i, this.chunkSize);
+            x = longStorage.subsequence(i - xSize, xSize);
+            i -= xSize;
+
+            DataStorage a = this.convolutionStrategy.convolute(x, shortStorage, xSize + shortSize);
+
+            assert (a.getSize() == xSize + shortSize);
+
+            // Add the overlapping part of the previous sub-result, the rest of the sub-result is added to the next sub-result
+            DataStorage.Iterator src2 = a.iterator(DataStorage.READ, xSize + shortSize, 0);
+
+            carry = additionStrategy.add(src1, src2, carry, dst, shortSize);
+            carry = additionStrategy.add(src2, null, carry, dst, i > 0 ? xSize - shortSize : xSize);
+
+            src1 = src2;
+        } while (i > 0);
+
+        assert (carry.equals(additionStrategy.zero()));
+
+        return (resultSize < size ? resultStorage.subsequence(0, resultSize) : resultStorage);
+    }
+
+    private int radix;
+    private ConvolutionStrategy convolutionStrategy;
+    private long chunkSize;
+}
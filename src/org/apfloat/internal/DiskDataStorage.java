@@ -28,11 +28,14 @@ import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apfloat.ApfloatContext;
@@ -40,18 +43,21 @@ import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.ArrayAccess;
 import org.apfloat.spi.DataStorage;
 import org.apfloat.spi.FilenameGenerator;
-import org.apfloat.spi.MatrixStrategy;
 
 /**
  * Abstract base class for disk-based data storage, containing the common
- * functionality independent of the element type.
+ * functionality independent of the element type.<p>
  *
- * @version 1.7.0
+ * The file can also be accessed through memory-mapped windows,
+ * see {@link #getMappedBuffer(long,long)}. The matrix accesses are
+ * implemented in {@link BlockDataStorage}.
+ *
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
 public abstract class DiskDataStorage
-    extends DataStorage
+    extends BlockDataStorage
 {
     private static class FileStorage
         implements Serializable
@@ -97,6 +103,8 @@ public abstract class DiskDataStorage
         public void setSize(long size)
             throws IOException, ApfloatRuntimeException
         {
+            clearWindows();         // The last window could be shorter than the file, or extend past its end
+
             try
             {
                 getRandomAccessFile().setLength(size);
@@ -202,6 +210,31 @@ public abstract class DiskDataStorage
             }
         }
 
+        // Windows are mapped on demand and kept until the file size changes
+        public synchronized MappedByteBuffer getWindow(long index)
+            throws IOException
+        {
+            if (this.windows == null)
+            {
+                this.windows = new HashMap<Long, MappedByteBuffer>();
+            }
+            MappedByteBuffer window = this.windows.get(index);
+            if (window == null)
+            {
+                long position = index * WINDOW_SIZE,
+                     size = Math.min(WINDOW_SIZE, getFileChannel().size() - position);
+                window = getFileChannel().map(FileChannel.MapMode.READ_WRITE, position, size);
+                this.windows.put(index, window);
+            }
+
+            return window;
+        }
+
+        private synchronized void clearWindows()
+        {
+            this.windows = null;    // The mappings are released when the buffers are garbage collected
+        }
+
         public String getFilename()
         {
             return this.filename;
@@ -256,6 +289,7 @@ public abstract class DiskDataStorage
         private transient File file;
         private transient RandomAccessFile randomAccessFile;
         private transient FileChannel fileChannel;
+        private transient Map<Long, MappedByteBuffer> windows;
     }
 
     // A PhantomReference is used so it's only queued when the Apfloat can't become accessible in any way (e.g. if it's weakly referenced)
@@ -433,254 +467,6 @@ public abstract class DiskDataStorage
         }
     }
 
-    @Override
-    protected synchronized ArrayAccess implGetArray(int mode, int startColumn, int columns, int rows)
-        throws ApfloatRuntimeException
-    {
-        int width = (int) (getSize() / rows);
-
-        if (columns != (columns & -columns) || rows != (rows & -rows) || startColumn + columns > width)
-        {
-            throw new ApfloatInternalException("Invalid size");
-        }
-
-        ArrayAccess arrayAccess = createArrayAccess(mode, startColumn, columns, rows);
-
-        if ((mode & READ) != 0)
-        {
-            long readPosition = startColumn;
-            int writePosition = 0;
-            for (int i = 0; i < rows; i++)
-            {
-                readToArray(readPosition, arrayAccess, writePosition, columns);
-
-                readPosition += width;
-                writePosition += columns;
-            }
-        }
-
-        return arrayAccess;
-    }
-
-    @Override
-    protected synchronized ArrayAccess implGetTransposedArray(int mode, int startColumn, int columns, int rows)
-        throws ApfloatRuntimeException
-    {
-        int width = (int) (getSize() / rows);
-
-        if (columns != (columns & -columns) || rows != (rows & -rows) || startColumn + columns > width)
-        {
-            throw new ApfloatInternalException("Invalid size");
-        }
-
-        int blockSize = columns * rows,
-            b = Math.min(columns, rows);
-        ArrayAccess arrayAccess = createTransposedArrayAccess(mode, startColumn, columns, rows);
-
-        if ((mode & READ) != 0)
-        {
-            // Read the data from the input file in b x b blocks
-            ApfloatContext ctx = ApfloatContext.getContext();
-            MatrixStrategy matrixStrategy = ctx.getBuilderFactory().getMatrixBuilder().createMatrix();
-
-            if (columns < rows)
-            {
-                // Taller than wide section
-                long readPosition = startColumn;
-                for (int i = 0; i < rows; i += b)
-                {
-                    int writePosition = i;
-
-                    for (int j = 0; j < b; j++)
-                    {
-                        readToArray(readPosition, arrayAccess, writePosition, b);
-
-                        readPosition += width;
-                        writePosition += rows;
-                    }
-
-                    // Transpose the b x b block
-
-                    ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
-                    matrixStrategy.transposeSquare(subArrayAccess, b, rows);
-                }
-            }
-            else
-            {
-                // Wider than tall section
-                for (int i = 0; i < b; i++)
-                {
-                    long readPosition = startColumn + i * width;
-                    int writePosition = i * b;
-
-                    for (int j = 0; j < columns; j += b)
-                    {
-                        readToArray(readPosition, arrayAccess, writePosition, b);
-
-                        readPosition += b;
-                        writePosition += b * b;
-                    }
-                }
-
-                for (int i = 0; i < blockSize; i += b * b)
-                {
-                    // Transpose the b x b block
-
-                    ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
-                    matrixStrategy.transposeSquare(subArrayAccess, b, b);
-                }
-            }
-        }
-
-        return arrayAccess;
-    }
-
-    /**
-     * Write the data back to the same location in the file that was retrieved with
-     * {@link #implGetArray(int,int,int,int)}.
-     *
-     * @param arrayAccess The transposed array access.
-     * @param startColumn The starting column where data is stored.
-     * @param columns The number of columns of data.
-     * @param rows The number of rows of data.
-     *
-     * @since 1.7.0
-     */
-
-    protected synchronized void setArray(ArrayAccess arrayAccess, int startColumn, int columns, int rows)
-        throws ApfloatRuntimeException
-    {
-        int width = (int) (getSize() / rows);
-
-        int readPosition = 0;
-        long writePosition = startColumn;
-        for (int i = 0; i < rows; i++)
-        {
-            writeFromArray(arrayAccess, readPosition, writePosition, columns);
-
-            readPosition += columns;
-            writePosition += width;
-        }
-    }
-
-    /**
-     * Write the data back to the same location in the file that was retrieved with
-     * {@link #implGetTransposedArray(int,int,int,int)}.
-     *
-     * @param arrayAccess The transposed array access.
-     * @param startColumn The starting column where data is stored.
-     * @param columns The number of columns of data.
-     * @param rows The number of rows of data.
-     *
-     * @since 1.7.0
-     */
-
-    protected synchronized void setTransposedArray(ArrayAccess arrayAccess, int startColumn, int columns, int rows)
-        throws ApfloatRuntimeException
-    {
-        int width = (int) (getSize() / rows);
-
-        int blockSize = arrayAccess.getLength(),
-            b = Math.min(columns, rows);
-
-        ApfloatContext ctx = ApfloatContext.getContext();
-        MatrixStrategy matrixStrategy = ctx.getBuilderFactory().getMatrixBuilder().createMatrix();
-
-        if (columns < rows)
-        {
-            // Taller than wide section
-            long writePosition = startColumn;
-            for (int i = 0; i < rows; i += b)
-            {
-                int readPosition = i;
-
-                // Transpose the b x b block
-
-                ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
-                matrixStrategy.transposeSquare(subArrayAccess, b, rows);
-
-                for (int j = 0; j < b; j++)
-                {
-                    writeFromArray(arrayAccess, readPosition, writePosition, b);
-
-                    readPosition += rows;
-                    writePosition += width;
-                }
-            }
-        }
-        else
-        {
-            // Wider than tall section
-            for (int i = 0; i < blockSize; i += b * b)
-            {
-                // Transpose the b x b block
-
-                ArrayAccess subArrayAccess = arrayAccess.subsequence(i, blockSize - i);
-                matrixStrategy.transposeSquare(subArrayAccess, b, b);
-            }
-
-            for (int i = 0; i < b; i++)
-            {
-                long writePosition = startColumn + i * width;
-                int readPosition = i * b;
-
-                for (int j = 0; j < columns; j += b)
-                {
-                    writeFromArray(arrayAccess, readPosition, writePosition, b);
-
-                    readPosition += b * b;
-                    writePosition += b;
-                }
-            }
-        }
-    }
-
-    private void readToArray(long readPosition, ArrayAccess arrayAccess, int writePosition, int length)
-        throws ApfloatRuntimeException
-    {
-        ArrayAccess readArrayAccess = getArray(READ, readPosition, length);
-        System.arraycopy(readArrayAccess.getData(), readArrayAccess.getOffset(), arrayAccess.getData(), arrayAccess.getOffset() + writePosition, length);
-        readArrayAccess.close();
-    }
-
-    private void writeFromArray(ArrayAccess arrayAccess, int readPosition, long writePosition, int length)
-        throws ApfloatRuntimeException
-    {
-        ArrayAccess writeArrayAccess = getArray(WRITE, writePosition, length);
-        System.arraycopy(arrayAccess.getData(), arrayAccess.getOffset() + readPosition, writeArrayAccess.getData(), writeArrayAccess.getOffset(), length);
-        writeArrayAccess.close();
-    }
-
-    /**
-     * Create an empty ArrayAccess.
-     *
-     * @param mode Whether the array is prepared for reading, writing or both. The value should be {@link #READ}, {@link #WRITE} or a combination of these.
-     * @param startColumn The starting column where data is stored.
-     * @param columns The number of columns of data.
-     * @param rows The number of rows of data.
-     *
-     * @return Access to an empty array of the specified size and position.
-     *
-     * @since 1.7.0
-     */
-
-    protected abstract ArrayAccess createArrayAccess(int mode, int startColumn, int columns, int rows);
-
-    /**
-     * Create an empty transposed ArrayAccess.
-     *
-     * @param mode Whether the array is prepared for reading, writing or both. The value should be {@link #READ}, {@link #WRITE} or a combination of these.
-     * @param startColumn The starting column where data is stored.
-     * @param columns The number of columns of data.
-     * @param rows The number of rows of data.
-     *
-     * @return Access to an empty array of the specified size and position.
-     *
-     * @since 1.7.0
-     */
-
-    protected abstract ArrayAccess createTransposedArrayAccess(int mode, int startColumn, int columns, int rows);
-
     /**
      * Transfer from a readable channel, possibly in multiple chunks.
      *
@@ -710,25 +496,43 @@ public abstract class DiskDataStorage
     }
 
     /**
-     * Convenience method for getting the block size (in bytes) for the
-     * current {@link ApfloatContext}.
+     * Get a buffer that is memory-mapped to the underlying disk file.
+     * The file is mapped in windows, and the returned buffer ends at the
+     * end of the window, if the requested range continues past it. The rest
+     * of the range can then be accessed by calling this method again. The
+     * window size is a multiple of all the element sizes, so an element
+     * never spans two windows.<p>
+     *
+     * The returned buffer is not shared, so its position and limit can be
+     * changed freely. The byte order is the same that is used elsewhere for
+     * accessing the file.
+     *
+     * @param position The starting position in the file, in bytes.
+     * @param size The number of bytes to access.
      *
-     * @return I/O block size, in bytes.
+     * @return A buffer mapped to the file, starting at the specified position and ending at most at the specified size.
+     *
+     * @since 1.8.3
      */
 
-    protected static int getBlockSize()
+    protected final ByteBuffer getMappedBuffer(long position, long size)
+        throws ApfloatRuntimeException
     {
-        ApfloatContext ctx = ApfloatContext.getContext();
-        return ctx.getBlockSize();
-    }
-
-    /**
-     * Size of the element type, in bytes.
-     *
-     * @return Size of the element type, in bytes.
-     */
+        ByteBuffer buffer;
+        try
+        {
+            buffer = this.fileStorage.getWindow(position / WINDOW_SIZE).duplicate();
+        }
+        catch (IOException ioe)
+        {
+            throw new BackingStorageException("Unable to map file \"" + getFilename() + '\"', ioe);
+        }
+        int windowPosition = (int) (position % WINDOW_SIZE);
+        buffer.limit((int) Math.min(buffer.capacity(), windowPosition + size));
+        buffer.position(windowPosition);
 
-    protected abstract int getUnitSize();
+        return buffer.slice();
+    }
 
     /**
      * Filename of the underlying disk data storage.
@@ -886,6 +690,7 @@ public abstract class DiskDataStorage
     private static final long serialVersionUID = 741984828408146034L;
 
     private static final long TIMEOUT = 1000;   // Reference queue waiting timeout when forcing deleting garbage collected files
+    private static final long WINDOW_SIZE = 1L << 26;  // Size of the memory-mapped windows of the file
 
     private static ReferenceQueue<FileStorage> referenceQueue = new ReferenceQueue<FileStorage>();
     private static Set<FileStorageReference> references = new HashSet<FileStorageReference>();
@@ -26,8 +26,10 @@ import org.apfloat.spi.DataStorage;
  *
  * @see DoubleMemoryDataStorage
  * @see DoubleDiskDataStorage
+ * @see DoubleMappedDiskDataStorage
+ * @see DoubleOffHeapDataStorage
  *
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -59,7 +61,14 @@ public class DoubleDataStorageBuilder
     protected DataStorage createNonCachedDataStorage()
         throws ApfloatRuntimeException
     {
-        return new DoubleDiskDataStorage();
+        return (isMappedDiskDataStorage() ? new DoubleMappedDiskDataStorage() : new DoubleDiskDataStorage());
+    }
+
+    @Override
+    protected DataStorage createOffHeapDataStorage()
+        throws ApfloatRuntimeException
+    {
+        return new DoubleOffHeapDataStorage();
     }
 
     @Override
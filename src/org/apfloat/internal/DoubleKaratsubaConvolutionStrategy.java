@@ -35,7 +35,7 @@ import org.apfloat.spi.DataStorage;
  * are faster.
  *
  * @since 1.4
- * @version 1.4
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -47,7 +47,8 @@ public class DoubleKaratsubaConvolutionStrategy
      *
      * Convolutions where the shorter number is at most this long
      * are calculated using the basic O(n<sup>2</sup>) algorithm
-     * i.e. <code>super.convolute()</code>.
+     * i.e. <code>super.convolute()</code>. This is the default, if
+     * the cutoff point is not set in the {@link ApfloatContext}.
      */
 
     public static final int CUTOFF_POINT = 15;
@@ -61,13 +62,16 @@ public class DoubleKaratsubaConvolutionStrategy
     public DoubleKaratsubaConvolutionStrategy(int radix)
     {
         super(radix);
+
+        int cutoffPoint = ApfloatContext.getContext().getKaratsubaCutoffPoint();
+        this.cutoffPoint = (cutoffPoint > 0 ? cutoffPoint : CUTOFF_POINT);
     }
 
     @Override
     public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
         throws ApfloatRuntimeException
     {
-        if (Math.min(x.getSize(), y.getSize()) <= CUTOFF_POINT)
+        if (Math.min(x.getSize(), y.getSize()) <= this.cutoffPoint)
         {
             // The numbers are too short for Karatsuba to have any advantage, fall back to O(n^2) algorithm
             return super.convolute(x, y, resultSize);
@@ -257,5 +261,7 @@ public class DoubleKaratsubaConvolutionStrategy
         return data == 0;
     }
 
+    private int cutoffPoint;
+
     private static final long serialVersionUID = 3605808557478224821L;
 }
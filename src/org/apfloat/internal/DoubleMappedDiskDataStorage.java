@@ -0,0 +1,156 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import java.nio.DoubleBuffer;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.ArrayAccess;
+
+/**
+ * Memory-mapped disk-based data storage for the <code>double</code> element type.<p>
+ *
+ * The data is copied directly between the memory-mapped file and the
+ * arrays, without the intermediate buffer and the system calls of
+ * the {@link DoubleDiskDataStorage}. Especially the matrix accesses,
+ * e.g. the column passes of the {@link TwoPassFNTStrategy}, read and
+ * write the data directly from and to the matrix array.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class DoubleMappedDiskDataStorage
+    extends DoubleDiskDataStorage
+{
+    /**
+     * Default constructor.
+     */
+
+    public DoubleMappedDiskDataStorage()
+        throws ApfloatRuntimeException
+    {
+    }
+
+    /**
+     * Subsequence constructor.
+     *
+     * @param doubleMappedDiskDataStorage The originating data storage.
+     * @param offset The subsequence starting position.
+     * @param length The subsequence length.
+     */
+
+    protected DoubleMappedDiskDataStorage(DoubleMappedDiskDataStorage doubleMappedDiskDataStorage, long offset, long length)
+    {
+        super(doubleMappedDiskDataStorage, offset, length);
+    }
+
+    @Override
+    protected DataStorage implSubsequence(long offset, long length)
+        throws ApfloatRuntimeException
+    {
+        return new DoubleMappedDiskDataStorage(this, offset + getOffset(), length);
+    }
+
+    private class MappedArrayAccess
+        extends DoubleMemoryArrayAccess
+    {
+        // fileOffset is absolute position in file
+        public MappedArrayAccess(int mode, long fileOffset, int length)
+            throws ApfloatRuntimeException
+        {
+            super(ArrayPool.allocate(double[].class, length, (mode & READ) == 0), 0, length);
+            this.mode = mode;
+            this.fileOffset = fileOffset;
+
+            if ((mode & READ) != 0)
+            {
+                transfer(fileOffset, getDoubleData(), 0, length, false);
+            }
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                double[] array = getDoubleData();
+                transfer(this.fileOffset, array, 0, array.length, true);
+            }
+
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = 1947542036823357422L;
+
+        private int mode;
+        private long fileOffset;
+    }
+
+    @Override
+    protected ArrayAccess implGetArray(int mode, long offset, int length)
+        throws ApfloatRuntimeException
+    {
+        return new MappedArrayAccess(mode, getOffset() + offset, length);
+    }
+
+    @Override
+    protected void readToArray(long readPosition, ArrayAccess arrayAccess, int writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        transfer(getOffset() + readPosition, arrayAccess.getDoubleData(), arrayAccess.getOffset() + writePosition, length, false);
+    }
+
+    @Override
+    protected void writeFromArray(ArrayAccess arrayAccess, int readPosition, long writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        transfer(getOffset() + writePosition, arrayAccess.getDoubleData(), arrayAccess.getOffset() + readPosition, length, true);
+    }
+
+    // Copy between the file and the array, one mapped window at a time; fileOffset is absolute position in file
+    private void transfer(long fileOffset, double[] array, int offset, int length, boolean write)
+        throws ApfloatRuntimeException
+    {
+        while (length > 0)
+        {
+            DoubleBuffer buffer = getMappedBuffer(fileOffset * 8, (long) length * 8).asDoubleBuffer();
+            int count = buffer.remaining();
+
+            if (write)
+            {
+                buffer.put(array, offset, count);
+            }
+            else
+            {
+                buffer.get(array, offset, count);
+            }
+
+            fileOffset += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private static final long serialVersionUID = 7947236082219394590L;
+}
@@ -27,7 +27,7 @@ import org.apfloat.spi.ArrayAccess;
  * Memory based data storage implementation for the <code>double</code>
  * element type.
  *
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -89,7 +89,7 @@ public class DoubleMemoryDataStorage
             return;
         }
 
-        this.data = new double[(int) size];
+        this.data = ArrayPool.allocate(double[].class, (int) size, size > dataStorage.getSize());
 
         ApfloatContext ctx = ApfloatContext.getContext();
         int readSize = (int) Math.min(size, dataStorage.getSize()),
@@ -135,11 +135,18 @@ public class DoubleMemoryDataStorage
 
         int newSize = (int) size;
 
-        double[] newData = new double[newSize];
+        double[] newData = ArrayPool.allocate(double[].class, newSize, newSize > this.data.length);
         System.arraycopy(this.data, 0, newData, 0, Math.min(this.data.length, newSize));
         this.data = newData;
     }
 
+    @Override
+    protected void implRelease()
+    {
+        ArrayPool.release(this.data);
+        this.data = new double[0];
+    }
+
     @Override
     protected ArrayAccess implGetArray(int mode, long offset, int length)
         throws ApfloatRuntimeException
@@ -132,6 +132,12 @@ public class Factor3NTTStrategy
         return Util.round23up(size);
     }
 
+    // The underlying transform also determines the layout of the transformed data
+    NTTStrategy getFactor2Strategy()
+    {
+        return this.factor2Strategy;
+    }
+
     /**
      * The factor-3 NTT steps.
      */
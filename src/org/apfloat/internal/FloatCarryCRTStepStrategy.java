@@ -55,9 +55,10 @@ public class FloatCarryCRTStepStrategy
     public float[] crt(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, DataStorage dataStorage, long size, long resultSize, long offset, long length)
         throws ApfloatRuntimeException
     {
-        long skipSize = (offset == 0 ? size - resultSize + 1: 0);   // For the first block, ignore the first 1-3 elements
-        long lastSize = (offset + length == size ? 1: 0);           // For the last block, add 1 element
-        long nonLastSize = 1 - lastSize;                            // For the other than last blocks, move 1 element
+        long extraSize = Math.max(resultSize - size - 1, 0);        // For a wrapped convolution, the carry takes 2 elements
+        long skipSize = (offset == 0 ? size - resultSize + 1 + extraSize: 0);  // For the first block, ignore the first 1-3 elements
+        long lastSize = (offset + length == size ? 1 + extraSize: 0);           // For the last block, add 1 (or 2) elements
+        long nonLastSize = 1 + extraSize - lastSize;                // For the other than last blocks, move 1 (or 2) elements
         long subResultSize = length - skipSize + lastSize;
 
         long subStart = size - offset,
@@ -123,9 +124,15 @@ public class FloatCarryCRTStepStrategy
         assert (carryResult[1] == 0);
 
         // Last block has one extra element (corresponding to the one skipped in the first block)
-        if (subResultSize == length - skipSize + 1)
+        if (lastSize > 0)
         {
             dst.setFloat(result0);
+            if (extraSize > 0)
+            {
+                dst.next();
+                dst.setFloat(result1);
+                result1 = 0;
+            }
             dst.close();
 
             result0 = result1;
@@ -140,9 +147,10 @@ public class FloatCarryCRTStepStrategy
     public float[] carry(DataStorage dataStorage, long size, long resultSize, long offset, long length, float[] results, float[] previousResults)
         throws ApfloatRuntimeException
     {
-        long skipSize = (offset == 0 ? size - resultSize + 1: 0);   // For the first block, ignore the first 1-3 elements
-        long lastSize = (offset + length == size ? 1: 0);           // For the last block, add 1 element
-        long nonLastSize = 1 - lastSize;                            // For the other than last blocks, move 1 element
+        long extraSize = Math.max(resultSize - size - 1, 0);        // For a wrapped convolution, the carry takes 2 elements
+        long skipSize = (offset == 0 ? size - resultSize + 1 + extraSize: 0);  // For the first block, ignore the first 1-3 elements
+        long lastSize = (offset + length == size ? 1 + extraSize: 0);           // For the last block, add 1 (or 2) elements
+        long nonLastSize = 1 + extraSize - lastSize;                // For the other than last blocks, move 1 (or 2) elements
         long subResultSize = length - skipSize + lastSize;
 
         long subResultStart = size - offset - length + nonLastSize + subResultSize,
@@ -26,8 +26,10 @@ import org.apfloat.spi.DataStorage;
  *
  * @see FloatMemoryDataStorage
  * @see FloatDiskDataStorage
+ * @see FloatMappedDiskDataStorage
+ * @see FloatOffHeapDataStorage
  *
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -59,7 +61,14 @@ public class FloatDataStorageBuilder
     protected DataStorage createNonCachedDataStorage()
         throws ApfloatRuntimeException
     {
-        return new FloatDiskDataStorage();
+        return (isMappedDiskDataStorage() ? new FloatMappedDiskDataStorage() : new FloatDiskDataStorage());
+    }
+
+    @Override
+    protected DataStorage createOffHeapDataStorage()
+        throws ApfloatRuntimeException
+    {
+        return new FloatOffHeapDataStorage();
     }
 
     @Override
@@ -27,7 +27,7 @@ import org.apfloat.spi.ArrayAccess;
  * Memory based data storage implementation for the <code>float</code>
  * element type.
  *
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -89,7 +89,7 @@ public class FloatMemoryDataStorage
             return;
         }
 
-        this.data = new float[(int) size];
+        this.data = ArrayPool.allocate(float[].class, (int) size, size > dataStorage.getSize());
 
         ApfloatContext ctx = ApfloatContext.getContext();
         int readSize = (int) Math.min(size, dataStorage.getSize()),
@@ -135,11 +135,18 @@ public class FloatMemoryDataStorage
 
         int newSize = (int) size;
 
-        float[] newData = new float[newSize];
+        float[] newData = ArrayPool.allocate(float[].class, newSize, newSize > this.data.length);
         System.arraycopy(this.data, 0, newData, 0, Math.min(this.data.length, newSize));
         this.data = newData;
     }
 
+    @Override
+    protected void implRelease()
+    {
+        ArrayPool.release(this.data);
+        this.data = new float[0];
+    }
+
     @Override
     protected ArrayAccess implGetArray(int mode, long offset, int length)
         throws ApfloatRuntimeException
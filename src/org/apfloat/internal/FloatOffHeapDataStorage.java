@@ -0,0 +1,366 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import java.nio.FloatBuffer;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.ArrayAccess;
+
+/**
+ * Off-heap memory data storage for the <code>float</code> element type.<p>
+ *
+ * The data is copied directly between the off-heap memory and the arrays.
+ * The size of the data is not limited to 2<sup>31</sup> elements, and the
+ * matrix accesses of e.g. the {@link TwoPassFNTStrategy} are supported.
+ *
+ * @see FloatMemoryDataStorage
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class FloatOffHeapDataStorage
+    extends OffHeapDataStorage
+{
+    /**
+     * Default constructor.
+     */
+
+    public FloatOffHeapDataStorage()
+    {
+    }
+
+    /**
+     * Subsequence constructor.
+     *
+     * @param floatOffHeapDataStorage The originating data storage.
+     * @param offset The subsequence starting position.
+     * @param length The subsequence length.
+     */
+
+    protected FloatOffHeapDataStorage(FloatOffHeapDataStorage floatOffHeapDataStorage, long offset, long length)
+    {
+        super(floatOffHeapDataStorage, offset, length);
+    }
+
+    @Override
+    protected DataStorage implSubsequence(long offset, long length)
+        throws ApfloatRuntimeException
+    {
+        return new FloatOffHeapDataStorage(this, offset + getOffset(), length);
+    }
+
+    private class OffHeapArrayAccess
+        extends FloatMemoryArrayAccess
+    {
+        // memoryOffset is absolute position in the off-heap memory
+        public OffHeapArrayAccess(int mode, long memoryOffset, int length)
+            throws ApfloatRuntimeException
+        {
+            super(ArrayPool.allocate(float[].class, length, (mode & READ) == 0), 0, length);
+            this.mode = mode;
+            this.memoryOffset = memoryOffset;
+
+            if ((mode & READ) != 0)
+            {
+                transfer(memoryOffset, getFloatData(), 0, length, false);
+            }
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                float[] array = getFloatData();
+                transfer(this.memoryOffset, array, 0, array.length, true);
+            }
+
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = -5538086224126428086L;
+
+        private int mode;
+        private long memoryOffset;
+    }
+
+    @Override
+    protected ArrayAccess implGetArray(int mode, long offset, int length)
+        throws ApfloatRuntimeException
+    {
+        return new OffHeapArrayAccess(mode, getOffset() + offset, length);
+    }
+
+    @Override
+    protected void readToArray(long readPosition, ArrayAccess arrayAccess, int writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        transfer(getOffset() + readPosition, arrayAccess.getFloatData(), arrayAccess.getOffset() + writePosition, length, false);
+    }
+
+    @Override
+    protected void writeFromArray(ArrayAccess arrayAccess, int readPosition, long writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        transfer(getOffset() + writePosition, arrayAccess.getFloatData(), arrayAccess.getOffset() + readPosition, length, true);
+    }
+
+    @Override
+    protected ArrayAccess createArrayAccess(int mode, int startColumn, int columns, int rows)
+    {
+        return new MemoryArrayAccess(mode, ArrayPool.allocate(float[].class, columns * rows, (mode & READ) == 0), startColumn, columns, rows);
+    }
+
+    @Override
+    protected ArrayAccess createTransposedArrayAccess(int mode, int startColumn, int columns, int rows)
+    {
+        return new TransposedMemoryArrayAccess(mode, ArrayPool.allocate(float[].class, columns * rows, (mode & READ) == 0), startColumn, columns, rows);
+    }
+
+    private class MemoryArrayAccess
+        extends FloatMemoryArrayAccess
+    {
+        public MemoryArrayAccess(int mode, float[] data, int startColumn, int columns, int rows)
+        {
+            super(data, 0, data.length);
+            this.mode = mode;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                setArray(this, this.startColumn, this.columns, this.rows);
+            }
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = 8944741048901546665L;
+
+        private int mode,
+                    startColumn,
+                    columns,
+                    rows;
+    }
+
+    private class TransposedMemoryArrayAccess
+        extends FloatMemoryArrayAccess
+    {
+        public TransposedMemoryArrayAccess(int mode, float[] data, int startColumn, int columns, int rows)
+        {
+            super(data, 0, data.length);
+            this.mode = mode;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                setTransposedArray(this, this.startColumn, this.columns, this.rows);
+            }
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = 438211738509186129L;
+
+        private int mode,
+                    startColumn,
+                    columns,
+                    rows;
+    }
+
+    private class BlockIterator
+        extends AbstractIterator
+    {
+        public BlockIterator(int mode, long startPosition, long endPosition)
+            throws IllegalArgumentException, IllegalStateException, ApfloatRuntimeException
+        {
+            super(mode, startPosition, endPosition);
+            this.arrayAccess = null;
+            this.remaining = 0;
+        }
+
+        @Override
+        public void next()
+            throws IllegalStateException, ApfloatRuntimeException
+        {
+            checkLength();
+
+            assert (this.remaining > 0);
+
+            checkAvailable();
+
+            this.offset += getIncrement();
+            this.remaining--;
+
+            if (this.remaining == 0)
+            {
+                close();
+            }
+
+            super.next();
+        }
+
+        @Override
+        public float getFloat()
+            throws IllegalStateException, ApfloatRuntimeException
+        {
+            checkGet();
+            checkAvailable();
+            return this.data[this.offset];
+        }
+
+        @Override
+        public void setFloat(float value)
+            throws IllegalStateException, ApfloatRuntimeException
+        {
+            checkSet();
+            checkAvailable();
+            this.data[this.offset] = value;
+        }
+
+        @Override
+        public <T> T get(Class<T> type)
+            throws UnsupportedOperationException, IllegalStateException
+        {
+            if (!(type.equals(Float.TYPE)))
+            {
+                throw new UnsupportedOperationException("Unsupported data type " + type.getCanonicalName() + ", the only supported type is float");
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) (Float) getFloat();
+            return value;
+        }
+
+        @Override
+        public <T> void set(Class<T> type, T value)
+            throws UnsupportedOperationException, IllegalArgumentException, IllegalStateException
+        {
+            if (!(type.equals(Float.TYPE)))
+            {
+                throw new UnsupportedOperationException("Unsupported data type " + type.getCanonicalName() + ", the only supported type is float");
+            }
+            if (!(value instanceof Float))
+            {
+                throw new IllegalArgumentException("Unsupported value type " + value.getClass().getCanonicalName() + ", the only supported type is Float");
+            }
+            setFloat((Float) value);
+        }
+
+        /**
+         * Closes the iterator. This needs to be called only if the
+         * iterator is not iterated to the end.
+         */
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if (this.arrayAccess != null)
+            {
+                this.data = null;
+                this.arrayAccess.close();
+                this.arrayAccess = null;
+            }
+        }
+
+        private void checkAvailable()
+            throws ApfloatRuntimeException
+        {
+            if (this.arrayAccess == null)
+            {
+                boolean isForward = (getIncrement() > 0);
+                int length = (int) Math.min(getLength(), getBlockSize() / 4);
+                long offset = (isForward ? getPosition() : getPosition() - length + 1);
+
+                this.arrayAccess = getArray(getMode(), offset, length);
+                this.data = this.arrayAccess.getFloatData();
+                this.offset = this.arrayAccess.getOffset() + (isForward ? 0 : length - 1);
+                this.remaining = length;
+            }
+        }
+
+        private static final long serialVersionUID = -2319525890221605496L;
+
+        private ArrayAccess arrayAccess;
+        private float[] data;
+        private int offset,
+                    remaining;
+    }
+
+    @Override
+    public Iterator iterator(int mode, long startPosition, long endPosition)
+        throws IllegalArgumentException, IllegalStateException, ApfloatRuntimeException
+    {
+        if ((mode & READ_WRITE) == 0)
+        {
+            throw new IllegalArgumentException("Illegal mode: " + mode);
+        }
+        return new BlockIterator(mode, startPosition, endPosition);
+    }
+
+    @Override
+    protected int getUnitSize()
+    {
+        return 4;
+    }
+
+    // Copy between the off-heap memory and the array, one segment at a time; memoryOffset is absolute position in the off-heap memory
+    private void transfer(long memoryOffset, float[] array, int offset, int length, boolean write)
+    {
+        while (length > 0)
+        {
+            FloatBuffer buffer = getBuffer(memoryOffset * 4, (long) length * 4).asFloatBuffer();
+            int count = buffer.remaining();
+
+            if (write)
+            {
+                buffer.put(array, offset, count);
+            }
+            else
+            {
+                buffer.get(array, offset, count);
+            }
+
+            memoryOffset += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private static final long serialVersionUID = -986617331342251990L;
+}
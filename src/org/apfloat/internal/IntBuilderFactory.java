@@ -33,7 +33,7 @@ import org.apfloat.spi.CarryCRTBuilder;
  * Factory class for getting instances of the various builder classes needed
  * to build an <code>ApfloatImpl</code> with the <code>int</code> data element type.
  *
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -121,6 +121,7 @@ public class IntBuilderFactory
     public void gc()
         throws ApfloatRuntimeException
     {
+        ArrayPool.clear();
         System.gc();
         System.gc();
         System.runFinalization();
@@ -26,8 +26,10 @@ import org.apfloat.spi.DataStorage;
  *
  * @see IntMemoryDataStorage
  * @see IntDiskDataStorage
+ * @see IntMappedDiskDataStorage
+ * @see IntOffHeapDataStorage
  *
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -59,7 +61,14 @@ public class IntDataStorageBuilder
     protected DataStorage createNonCachedDataStorage()
         throws ApfloatRuntimeException
     {
-        return new IntDiskDataStorage();
+        return (isMappedDiskDataStorage() ? new IntMappedDiskDataStorage() : new IntDiskDataStorage());
+    }
+
+    @Override
+    protected DataStorage createOffHeapDataStorage()
+        throws ApfloatRuntimeException
+    {
+        return new IntOffHeapDataStorage();
     }
 
     @Override
@@ -30,7 +30,7 @@ import org.apfloat.spi.ArrayAccess;
 /**
  * Disk-based data storage for the <code>int</code> element type.
  *
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -73,7 +73,7 @@ public class IntDiskDataStorage
         public IntDiskArrayAccess(int mode, long fileOffset, int length)
             throws ApfloatRuntimeException
         {
-            super(new int[length], 0, length);
+            super(ArrayPool.allocate(int[].class, length, (mode & READ) == 0), 0, length);
             this.mode = mode;
             this.fileOffset = fileOffset;
 
@@ -136,6 +136,7 @@ public class IntDiskDataStorage
                 transferFrom(in, this.fileOffset * 4, (long) array.length * 4);
             }
 
+            ArrayPool.release(getData());
             super.close();
         }
 
@@ -155,13 +156,13 @@ public class IntDiskDataStorage
     @Override
     protected ArrayAccess createArrayAccess(int mode, int startColumn, int columns, int rows)
     {
-        return new MemoryArrayAccess(mode, new int[columns * rows], startColumn, columns, rows);
+        return new MemoryArrayAccess(mode, ArrayPool.allocate(int[].class, columns * rows, (mode & READ) == 0), startColumn, columns, rows);
     }
 
     @Override
     protected ArrayAccess createTransposedArrayAccess(int mode, int startColumn, int columns, int rows)
     {
-        return new TransposedMemoryArrayAccess(mode, new int[columns * rows], startColumn, columns, rows);
+        return new TransposedMemoryArrayAccess(mode, ArrayPool.allocate(int[].class, columns * rows, (mode & READ) == 0), startColumn, columns, rows);
     }
 
     private class MemoryArrayAccess
@@ -184,6 +185,7 @@ public class IntDiskDataStorage
             {
                 setArray(this, this.startColumn, this.columns, this.rows);
             }
+            ArrayPool.release(getData());
             super.close();
         }
 
@@ -215,6 +217,7 @@ public class IntDiskDataStorage
             {
                 setTransposedArray(this, this.startColumn, this.columns, this.rows);
             }
+            ArrayPool.release(getData());
             super.close();
         }
 
@@ -64,9 +64,15 @@ package org.apfloat.internal;
  * <code>1.0 / (modulus + 0.5)</code>. Since the modulus is assumed to be
  * prime, and a <code>double</code> has more bits for precision than an
  * <code>int</code>, the approximate result of <code>a * b / modulus</code>
- * will always be either correct or one too small (but never one too big).
+ * will always be either correct or one too small (but never one too big).<p>
  *
- * @version 1.0.2
+ * When one of the operands is a constant, like the powers of the root of unity
+ * in a transform, the division can be precomputed too (Shoup's method): with
+ * <code>w' = floor(w * 2<sup>31</sup> / modulus)</code> calculated once, the
+ * approximate division is <code>a * w' &gt;&gt;&gt; 31</code> using only
+ * integer arithmetic.
+ *
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -97,6 +103,45 @@ public class IntElementaryModMath
         return (r2 < 0 ? r1 : r2);
     }
 
+    /**
+     * Precompute the quotient for multiplying by a constant with
+     * {@link #modMultiply(int,int,int)}.
+     *
+     * @param w The constant multiplier, <code>0 &lt;= w &lt; modulus</code>.
+     *
+     * @return <code>floor(w * 2<sup>31</sup> / modulus)</code>
+     *
+     * @since 1.8.3
+     */
+
+    public final int precompute(int w)
+    {
+        return (int) (((long) w << 31) / this.modulus);
+    }
+
+    /**
+     * Modular multiplication by a constant with a precomputed quotient
+     * (Shoup's method). The quotient estimate is correct or one too small,
+     * so the remainder needs only one conditional subtraction.
+     *
+     * @param a The operand, <code>0 &lt;= a &lt; modulus</code>.
+     * @param w The constant multiplier.
+     * @param wPrecomputed The value <code>{@link #precompute(int) precompute}(w)</code>.
+     *
+     * @return <code>a * w % modulus</code>
+     *
+     * @since 1.8.3
+     */
+
+    public final int modMultiply(int a, int w, int wPrecomputed)
+    {
+        int q = (int) ((long) a * wPrecomputed >>> 31),
+            r1 = a * w - q * this.modulus,
+            r2 = r1 - this.modulus;
+
+        return (r2 < 0 ? r1 : r2);
+    }
+
     /**
      * Modular addition.
      *
@@ -148,7 +193,7 @@ public class IntElementaryModMath
      * @param modulus The modulus.
      */
 
-    public final void setModulus(int modulus)
+    public void setModulus(int modulus)
     {
         this.inverseModulus = 1.0 / (modulus + 0.5);    // Round down
         this.modulus = modulus;
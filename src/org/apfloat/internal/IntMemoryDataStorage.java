@@ -27,7 +27,7 @@ import org.apfloat.spi.ArrayAccess;
  * Memory based data storage implementation for the <code>int</code>
  * element type.
  *
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -89,7 +89,7 @@ public class IntMemoryDataStorage
             return;
         }
 
-        this.data = new int[(int) size];
+        this.data = ArrayPool.allocate(int[].class, (int) size, size > dataStorage.getSize());
 
         ApfloatContext ctx = ApfloatContext.getContext();
         int readSize = (int) Math.min(size, dataStorage.getSize()),
@@ -135,11 +135,18 @@ public class IntMemoryDataStorage
 
         int newSize = (int) size;
 
-        int[] newData = new int[newSize];
+        int[] newData = ArrayPool.allocate(int[].class, newSize, newSize > this.data.length);
         System.arraycopy(this.data, 0, newData, 0, Math.min(this.data.length, newSize));
         this.data = newData;
     }
 
+    @Override
+    protected void implRelease()
+    {
+        ArrayPool.release(this.data);
+        this.data = new int[0];
+    }
+
     @Override
     protected ArrayAccess implGetArray(int mode, long offset, int length)
         throws ApfloatRuntimeException
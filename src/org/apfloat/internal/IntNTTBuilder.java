@@ -65,6 +65,6 @@ public class IntNTTBuilder
     @Override
     protected NTTStrategy createSimpleFNTStrategy(long size)
     {
-        return new IntTableFNTStrategy();
+        return new IntRadix4TableFNTStrategy();
     }
 }
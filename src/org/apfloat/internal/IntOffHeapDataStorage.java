@@ -0,0 +1,366 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import java.nio.IntBuffer;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.ArrayAccess;
+
+/**
+ * Off-heap memory data storage for the <code>int</code> element type.<p>
+ *
+ * The data is copied directly between the off-heap memory and the arrays.
+ * The size of the data is not limited to 2<sup>31</sup> elements, and the
+ * matrix accesses of e.g. the {@link TwoPassFNTStrategy} are supported.
+ *
+ * @see IntMemoryDataStorage
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntOffHeapDataStorage
+    extends OffHeapDataStorage
+{
+    /**
+     * Default constructor.
+     */
+
+    public IntOffHeapDataStorage()
+    {
+    }
+
+    /**
+     * Subsequence constructor.
+     *
+     * @param intOffHeapDataStorage The originating data storage.
+     * @param offset The subsequence starting position.
+     * @param length The subsequence length.
+     */
+
+    protected IntOffHeapDataStorage(IntOffHeapDataStorage intOffHeapDataStorage, long offset, long length)
+    {
+        super(intOffHeapDataStorage, offset, length);
+    }
+
+    @Override
+    protected DataStorage implSubsequence(long offset, long length)
+        throws ApfloatRuntimeException
+    {
+        return new IntOffHeapDataStorage(this, offset + getOffset(), length);
+    }
+
+    private class OffHeapArrayAccess
+        extends IntMemoryArrayAccess
+    {
+        // memoryOffset is absolute position in the off-heap memory
+        public OffHeapArrayAccess(int mode, long memoryOffset, int length)
+            throws ApfloatRuntimeException
+        {
+            super(ArrayPool.allocate(int[].class, length, (mode & READ) == 0), 0, length);
+            this.mode = mode;
+            this.memoryOffset = memoryOffset;
+
+            if ((mode & READ) != 0)
+            {
+                transfer(memoryOffset, getIntData(), 0, length, false);
+            }
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                int[] array = getIntData();
+                transfer(this.memoryOffset, array, 0, array.length, true);
+            }
+
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = -8155150252722582520L;
+
+        private int mode;
+        private long memoryOffset;
+    }
+
+    @Override
+    protected ArrayAccess implGetArray(int mode, long offset, int length)
+        throws ApfloatRuntimeException
+    {
+        return new OffHeapArrayAccess(mode, getOffset() + offset, length);
+    }
+
+    @Override
+    protected void readToArray(long readPosition, ArrayAccess arrayAccess, int writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        transfer(getOffset() + readPosition, arrayAccess.getIntData(), arrayAccess.getOffset() + writePosition, length, false);
+    }
+
+    @Override
+    protected void writeFromArray(ArrayAccess arrayAccess, int readPosition, long writePosition, int length)
+        throws ApfloatRuntimeException
+    {
+        transfer(getOffset() + writePosition, arrayAccess.getIntData(), arrayAccess.getOffset() + readPosition, length, true);
+    }
+
+    @Override
+    protected ArrayAccess createArrayAccess(int mode, int startColumn, int columns, int rows)
+    {
+        return new MemoryArrayAccess(mode, ArrayPool.allocate(int[].class, columns * rows, (mode & READ) == 0), startColumn, columns, rows);
+    }
+
+    @Override
+    protected ArrayAccess createTransposedArrayAccess(int mode, int startColumn, int columns, int rows)
+    {
+        return new TransposedMemoryArrayAccess(mode, ArrayPool.allocate(int[].class, columns * rows, (mode & READ) == 0), startColumn, columns, rows);
+    }
+
+    private class MemoryArrayAccess
+        extends IntMemoryArrayAccess
+    {
+        public MemoryArrayAccess(int mode, int[] data, int startColumn, int columns, int rows)
+        {
+            super(data, 0, data.length);
+            this.mode = mode;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                setArray(this, this.startColumn, this.columns, this.rows);
+            }
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = 5042523579730407115L;
+
+        private int mode,
+                    startColumn,
+                    columns,
+                    rows;
+    }
+
+    private class TransposedMemoryArrayAccess
+        extends IntMemoryArrayAccess
+    {
+        public TransposedMemoryArrayAccess(int mode, int[] data, int startColumn, int columns, int rows)
+        {
+            super(data, 0, data.length);
+            this.mode = mode;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if ((this.mode & WRITE) != 0 && getData() != null)
+            {
+                setTransposedArray(this, this.startColumn, this.columns, this.rows);
+            }
+            ArrayPool.release(getData());
+            super.close();
+        }
+
+        private static final long serialVersionUID = 4589689223107551810L;
+
+        private int mode,
+                    startColumn,
+                    columns,
+                    rows;
+    }
+
+    private class BlockIterator
+        extends AbstractIterator
+    {
+        public BlockIterator(int mode, long startPosition, long endPosition)
+            throws IllegalArgumentException, IllegalStateException, ApfloatRuntimeException
+        {
+            super(mode, startPosition, endPosition);
+            this.arrayAccess = null;
+            this.remaining = 0;
+        }
+
+        @Override
+        public void next()
+            throws IllegalStateException, ApfloatRuntimeException
+        {
+            checkLength();
+
+            assert (this.remaining > 0);
+
+            checkAvailable();
+
+            this.offset += getIncrement();
+            this.remaining--;
+
+            if (this.remaining == 0)
+            {
+                close();
+            }
+
+            super.next();
+        }
+
+        @Override
+        public int getInt()
+            throws IllegalStateException, ApfloatRuntimeException
+        {
+            checkGet();
+            checkAvailable();
+            return this.data[this.offset];
+        }
+
+        @Override
+        public void setInt(int value)
+            throws IllegalStateException, ApfloatRuntimeException
+        {
+            checkSet();
+            checkAvailable();
+            this.data[this.offset] = value;
+        }
+
+        @Override
+        public <T> T get(Class<T> type)
+            throws UnsupportedOperationException, IllegalStateException
+        {
+            if (!(type.equals(Integer.TYPE)))
+            {
+                throw new UnsupportedOperationException("Unsupported data type " + type.getCanonicalName() + ", the only supported type is int");
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) (Integer) getInt();
+            return value;
+        }
+
+        @Override
+        public <T> void set(Class<T> type, T value)
+            throws UnsupportedOperationException, IllegalArgumentException, IllegalStateException
+        {
+            if (!(type.equals(Integer.TYPE)))
+            {
+                throw new UnsupportedOperationException("Unsupported data type " + type.getCanonicalName() + ", the only supported type is int");
+            }
+            if (!(value instanceof Integer))
+            {
+                throw new IllegalArgumentException("Unsupported value type " + value.getClass().getCanonicalName() + ", the only supported type is Integer");
+            }
+            setInt((Integer) value);
+        }
+
+        /**
+         * Closes the iterator. This needs to be called only if the
+         * iterator is not iterated to the end.
+         */
+
+        @Override
+        public void close()
+            throws ApfloatRuntimeException
+        {
+            if (this.arrayAccess != null)
+            {
+                this.data = null;
+                this.arrayAccess.close();
+                this.arrayAccess = null;
+            }
+        }
+
+        private void checkAvailable()
+            throws ApfloatRuntimeException
+        {
+            if (this.arrayAccess == null)
+            {
+                boolean isForward = (getIncrement() > 0);
+                int length = (int) Math.min(getLength(), getBlockSize() / 4);
+                long offset = (isForward ? getPosition() : getPosition() - length + 1);
+
+                this.arrayAccess = getArray(getMode(), offset, length);
+                this.data = this.arrayAccess.getIntData();
+                this.offset = this.arrayAccess.getOffset() + (isForward ? 0 : length - 1);
+                this.remaining = length;
+            }
+        }
+
+        private static final long serialVersionUID = 8449038777701148841L;
+
+        private ArrayAccess arrayAccess;
+        private int[] data;
+        private int offset,
+                    remaining;
+    }
+
+    @Override
+    public Iterator iterator(int mode, long startPosition, long endPosition)
+        throws IllegalArgumentException, IllegalStateException, ApfloatRuntimeException
+    {
+        if ((mode & READ_WRITE) == 0)
+        {
+            throw new IllegalArgumentException("Illegal mode: " + mode);
+        }
+        return new BlockIterator(mode, startPosition, endPosition);
+    }
+
+    @Override
+    protected int getUnitSize()
+    {
+        return 4;
+    }
+
+    // Copy between the off-heap memory and the array, one segment at a time; memoryOffset is absolute position in the off-heap memory
+    private void transfer(long memoryOffset, int[] array, int offset, int length, boolean write)
+    {
+        while (length > 0)
+        {
+            IntBuffer buffer = getBuffer(memoryOffset * 4, (long) length * 4).asIntBuffer();
+            int count = buffer.remaining();
+
+            if (write)
+            {
+                buffer.put(array, offset, count);
+            }
+            else
+            {
+                buffer.get(array, offset, count);
+            }
+
+            memoryOffset += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private static final long serialVersionUID = -5578266619456125966L;
+}
@@ -31,7 +31,7 @@ import static org.apfloat.internal.IntModConstants.*;
  *
  * All access to this class must be externally synchronized.
  *
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -62,11 +62,11 @@ public class IntTableFNTStrategy
         }
 
         setModulus(MODULUS[modulus]);                                       // Modulus
-        int[] wTable = IntWTables.getWTable(modulus, (int) length);
+        int[] wTable = IntWTables.getPrecomputedWTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        tableFNT(arrayAccess, wTable, null);
+        transform(arrayAccess, wTable);
 
         arrayAccess.close();
     }
@@ -86,11 +86,11 @@ public class IntTableFNTStrategy
         }
 
         setModulus(MODULUS[modulus]);                                       // Modulus
-        int[] wTable = IntWTables.getInverseWTable(modulus, (int) length);
+        int[] wTable = IntWTables.getInversePrecomputedWTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        inverseTableFNT(arrayAccess, wTable, null);
+        inverseTransform(arrayAccess, wTable);
 
         divideElements(arrayAccess, (int) totalTransformLength);
 
@@ -102,6 +102,39 @@ public class IntTableFNTStrategy
         return Util.round2up(size);
     }
 
+    /**
+     * Transform the data in the array, using the precomputed
+     * table of powers of the n:th root of unity.
+     *
+     * @param arrayAccess The data to transform.
+     * @param wTable Table of powers of n:th root of unity.
+     *
+     * @since 1.8.3
+     */
+
+    protected void transform(ArrayAccess arrayAccess, int[] wTable)
+        throws ApfloatRuntimeException
+    {
+        precomputedTableFNT(arrayAccess, wTable, null);
+    }
+
+    /**
+     * Inverse transform the data in the array, using the precomputed
+     * table of powers of the inverse n:th root of unity.
+     * The data is not divided by the transform length.
+     *
+     * @param arrayAccess The data to transform.
+     * @param wTable Table of powers of inverse n:th root of unity.
+     *
+     * @since 1.8.3
+     */
+
+    protected void inverseTransform(ArrayAccess arrayAccess, int[] wTable)
+        throws ApfloatRuntimeException
+    {
+        inversePrecomputedTableFNT(arrayAccess, wTable, null);
+    }
+
     private void divideElements(ArrayAccess arrayAccess, int divisor)
         throws ApfloatRuntimeException
     {
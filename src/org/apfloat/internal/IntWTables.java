@@ -29,7 +29,7 @@ import static org.apfloat.internal.IntModConstants.*;
  * Helper class for generating and caching tables of powers of the n:th root of unity.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -69,6 +69,65 @@ public class IntWTables
         return getWTable(modulus, length, true);
     }
 
+    /**
+     * Get a table of powers of n:th root of unity with precomputed quotients.
+     * Element <code>2 * i</code> of the table is <code>w<sup>i</sup></code> and element
+     * <code>2 * i + 1</code> is the value for multiplying by it with
+     * {@link IntElementaryModMath#modMultiply(int,int,int)}.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The number of powers in the table, i.e. n.
+     *
+     * @return The table of powers of the n:th root of unity and the precomputed quotients.
+     *
+     * @since 1.8.3
+     */
+
+    public static int[] getPrecomputedWTable(int modulus, int length)
+    {
+        return getPrecomputedWTable(modulus, length, false);
+    }
+
+    /**
+     * Get a table of inverses of powers of n:th root of unity with precomputed quotients.
+     * The layout of the table is the same as for {@link #getPrecomputedWTable(int,int)}.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The number of powers in the table, i.e. n.
+     *
+     * @return The table of inverses of powers of the n:th root of unity and the precomputed quotients.
+     *
+     * @since 1.8.3
+     */
+
+    public static int[] getInversePrecomputedWTable(int modulus, int length)
+    {
+        return getPrecomputedWTable(modulus, length, true);
+    }
+
+    private static int[] getPrecomputedWTable(int modulus, int length, boolean isInverse)
+    {
+        List<Integer> key = Arrays.asList(isInverse ? 3 : 2, modulus, length);
+        int[] wTable = IntWTables.cache.get(key);
+        if (wTable == null)
+        {
+            IntModMath instance = getInstance(modulus);
+            int[] powers = getWTable(modulus, length, isInverse);
+            wTable = new int[2 * length];
+            for (int i = 0; i < length; i++)
+            {
+                wTable[2 * i] = powers[i];
+                wTable[2 * i + 1] = instance.precompute(powers[i]);
+            }
+            int[] value = IntWTables.cache.putIfAbsent(key, wTable);
+            if (value != null)
+            {
+                wTable = value;
+            }
+        }
+        return wTable;
+    }
+
     private static int[] getWTable(int modulus, int length, boolean isInverse)
     {
         List<Integer> key = Arrays.asList(isInverse ? 1 : 0, modulus, length);
@@ -99,6 +158,6 @@ public class IntWTables
         return instance;
     }
 
-    // With inverses, three moduli and lengths being powers of two, the theoretical maximum map size is 2 * 3 * 30 = 180 entries
+    // With inverses, precomputed tables, three moduli and lengths being powers of two, the theoretical maximum map size is 4 * 3 * 30 = 360 entries
     private static ConcurrentMap<List<Integer>, int[]> cache = new ConcurrentSoftHashMap<List<Integer>, int[]>();
 }
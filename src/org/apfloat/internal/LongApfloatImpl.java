@@ -53,7 +53,7 @@ import static org.apfloat.internal.LongRadixConstants.*;
  * This implementation doesn't necessarily store any extra digits for added
  * precision, so the last digit of any operation may be inaccurate.
  *
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -1247,6 +1247,177 @@ public class LongApfloatImpl
         return new LongApfloatImpl(sign, precision, exponent, dataStorage, this.radix);
     }
 
+    public ApfloatImpl multiplySubtractOne(ApfloatImpl x, long equalDigits)
+        throws ApfloatRuntimeException
+    {
+        if (!(x instanceof LongApfloatImpl))
+        {
+            throw new ImplementationMismatchException("Wrong operand type: " + x.getClass().getName());
+        }
+
+        LongApfloatImpl that = (LongApfloatImpl) x;
+
+        if (this.radix != that.radix)
+        {
+            throw new RadixMismatchException("Cannot multiply numbers with different radixes: " + this.radix + " and " + that.radix);
+        }
+
+        if (this.sign * that.sign != 1)
+        {
+            // The product is not close to one
+            return null;
+        }
+
+        long precision = Math.min(this.precision, that.precision),
+             basePrecision = getBasePrecision(precision, 0),            // Round up
+             thisDataSize = Math.min(getSize(), basePrecision),
+             thatDataSize = Math.min(that.getSize(), basePrecision),
+             equalSize = Math.max(equalDigits, 0) / BASE_DIGITS[this.radix],
+             wrapSize = Math.max(Math.max(thisDataSize, thatDataSize), thisDataSize + thatDataSize - equalSize + 1);      // The deviation from one fits in all but the first word
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        ConvolutionBuilder convolutionBuilder = ctx.getBuilderFactory().getConvolutionBuilder();
+        ConvolutionStrategy convolutionStrategy = convolutionBuilder.createWrappedConvolution(this.radix, thisDataSize, thatDataSize, wrapSize);
+
+        if (convolutionStrategy == null)
+        {
+            // A full multiplication would be as efficient
+            return null;
+        }
+
+        DataStorage thisDataStorage = this.dataStorage.subsequence(0, thisDataSize),
+                    thatDataStorage = (this.dataStorage == that.dataStorage ?
+                                       thisDataStorage :                                                // Enable auto-convolution
+                                       that.dataStorage.subsequence(0, thatDataSize));
+
+        DataStorage dataStorage = convolutionStrategy.convolute(thisDataStorage, thatDataStorage, wrapSize);
+
+        // The words 2...length+1 of the result are the product modulo base^length - 1, shifted right by shift words,
+        // and the words 0 and 1 are the carry out of the cyclic convolution, which wraps around to the least significant words
+        long length = dataStorage.getSize() - 2,
+             shift = thisDataSize + thatDataSize - 1 - length,
+             onePosition = ((1 - this.exponent % length - that.exponent % length) % length + length) % length;
+
+        assert (shift >= 0 && shift < length);
+
+        cyclicCarry(dataStorage, length + 1, getWord(dataStorage, 1), false);
+        cyclicCarry(dataStorage, length + 1 - 1 % length, getWord(dataStorage, 0), false);    // Word 0 has the weight base, modulo base^length - 1
+        cyclicCarry(dataStorage, length + 1 - onePosition, (long) 1, true);      // Subtract one
+
+        // Rotate the shift back to get the deviation from one modulo base^length - 1,
+        // that must be small enough to have a zero or all-ones most significant word
+        long msw = getWord(dataStorage, shift + 2);
+        boolean negative = (msw == BASE[this.radix] - 1);
+
+        if (msw != 0 && !negative)
+        {
+            // The product is not close enough to one
+            return null;
+        }
+
+        DataStorage resultStorage = createDataStorage(length);
+        resultStorage.setSize(length);
+
+        DataStorage.Iterator dst = resultStorage.iterator(DataStorage.WRITE, 0, length);
+        copyWords(dataStorage, shift + 2, length + 2, dst, negative);
+        copyWords(dataStorage, 2, shift + 2, dst, negative);
+
+        long leadingZeros = getLeadingZeros(resultStorage, 0);
+
+        if (leadingZeros == length)
+        {
+            // The product is exactly one
+            return zero();
+        }
+
+        long exponent = length - leadingZeros + this.exponent + that.exponent - thisDataSize - thatDataSize,
+             size = length - leadingZeros;
+
+        if (exponent < -MAX_EXPONENT[this.radix])
+        {
+            // Underflow
+            return zero();
+        }
+
+        resultStorage = resultStorage.subsequence(leadingZeros, size);
+
+        // The result has the precision that it would have if the product was calculated to the precision and one subtracted from it
+        int initialDigits = getInitialDigits(resultStorage);
+        long scale = (exponent - 1) * BASE_DIGITS[this.radix] + initialDigits,
+             resultPrecision = Util.ifFinite(precision, precision + scale - (negative ? 0 : 1));
+
+        if (resultPrecision <= 0)
+        {
+            // The deviation is less than the precision of the product
+            return zero();
+        }
+
+        size = Math.min(size, getBasePrecision(resultPrecision, initialDigits));
+        size -= getTrailingZeros(resultStorage, size);
+
+        resultStorage = resultStorage.subsequence(0, size);
+
+        resultStorage.setReadOnly();
+
+        return new LongApfloatImpl(negative ? -1 : 1, resultPrecision, exponent, resultStorage, this.radix);
+    }
+
+    // Adds the carry to, or subtracts it from, the words 2...index of the data storage,
+    // modulo base^length - 1, where the words 2...length+1 are the number
+    private void cyclicCarry(DataStorage dataStorage, long index, long carry, boolean subtract)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize() - 2;
+
+        while (carry != 0)
+        {
+            DataStorage.Iterator iterator = dataStorage.iterator(DataStorage.READ_WRITE, index + 1, 2);
+            carry = (subtract ? baseSubtract(iterator, null, carry, iterator, index - 1) : baseAdd(iterator, null, carry, iterator, index - 1));
+            index = length + 1;             // Carry out of the most significant word wraps around to the least significant word
+        }
+    }
+
+    // Copies the words start...end-1 of the data storage to the iterator, optionally as the complement
+    private void copyWords(DataStorage dataStorage, long start, long end, DataStorage.Iterator dst, boolean complement)
+        throws ApfloatRuntimeException
+    {
+        if (start == end)
+        {
+            return;
+        }
+
+        long complementBase = BASE[this.radix] - 1;
+        DataStorage.Iterator src = dataStorage.iterator(DataStorage.READ, start, end);
+
+        for (long i = start; i < end; i++)
+        {
+            long word = src.getLong();
+            dst.setLong(complement ? complementBase - word : word);
+
+            src.next();
+            dst.next();
+        }
+    }
+
+    private static long getWord(DataStorage dataStorage, long index)
+        throws ApfloatRuntimeException
+    {
+        ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ, index, 1);
+        long word = arrayAccess.getLongData()[arrayAccess.getOffset()];
+        arrayAccess.close();
+
+        return word;
+    }
+
+    public void pin()
+        throws ApfloatRuntimeException
+    {
+        if (this.dataStorage != null)
+        {
+            this.dataStorage.pin();
+        }
+    }
+
     public boolean isShort()
         throws ApfloatRuntimeException
     {
@@ -26,8 +26,10 @@ import org.apfloat.spi.DataStorage;
  *
  * @see LongMemoryDataStorage
  * @see LongDiskDataStorage
+ * @see LongMappedDiskDataStorage
+ * @see LongOffHeapDataStorage
  *
- * @version 1.8.2
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -59,7 +61,14 @@ public class LongDataStorageBuilder
     protected DataStorage createNonCachedDataStorage()
         throws ApfloatRuntimeException
     {
-        return new LongDiskDataStorage();
+        return (isMappedDiskDataStorage() ? new LongMappedDiskDataStorage() : new LongDiskDataStorage());
+    }
+
+    @Override
+    protected DataStorage createOffHeapDataStorage()
+        throws ApfloatRuntimeException
+    {
+        return new LongOffHeapDataStorage();
     }
 
     @Override
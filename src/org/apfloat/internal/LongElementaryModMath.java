@@ -68,9 +68,16 @@ package org.apfloat.internal;
  * must then be done once more to reduce the remainder since the original multiplication operands
  * are only 57-bit numbers. The second reduction reduces the results to the correct value &#177;modulus.
  * It is then easy to detect the case when the approximate division was off by one (and the
- * remainder is <code>&#177;modulus</code> off) as the final step of the algorithm.
+ * remainder is <code>&#177;modulus</code> off) as the final step of the algorithm.<p>
  *
- * @version 1.0
+ * When one of the operands is a constant, like the powers of the root of unity
+ * in a transform, the division can be precomputed as well (Shoup's method). For a
+ * constant <code>w</code> the value <code>w' = floor(w * 2<sup>58</sup> / modulus)</code>
+ * is calculated once. The quotient of <code>a * w / modulus</code> is then the
+ * high 64 bits of <code>(a * 2<sup>6</sup>) * w'</code>, which is correct or one
+ * too small, and the remainder is obtained with one conditional subtraction.
+ *
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -104,6 +111,45 @@ public class LongElementaryModMath
         return r;
     }
 
+    /**
+     * Precompute the quotient for multiplying by a constant with
+     * {@link #modMultiply(long,long,long)}.
+     *
+     * @param w The constant multiplier, <code>0 &lt;= w &lt; modulus</code>.
+     *
+     * @return <code>floor(w * 2<sup>58</sup> / modulus)</code>
+     *
+     * @since 1.8.3
+     */
+
+    public final long precompute(long w)
+    {
+        // The division is exact so the quotient can be calculated modulo 2^64 with the inverse of the odd modulus
+        long r = modMultiply(w, this.shoupRemainder);
+
+        return ((w << SHOUP_BITS) - r) * this.inverseModulus64;
+    }
+
+    /**
+     * Modular multiplication by a constant with a precomputed quotient.
+     *
+     * @param a The operand, <code>0 &lt;= a &lt; modulus</code>.
+     * @param w The constant multiplier.
+     * @param wPrecomputed The value <code>{@link #precompute(long) precompute}(w)</code>.
+     *
+     * @return <code>a * w % modulus</code>
+     *
+     * @since 1.8.3
+     */
+
+    public final long modMultiply(long a, long w, long wPrecomputed)
+    {
+        long q = Math.multiplyHigh(a << (64 - SHOUP_BITS), wPrecomputed),
+             r = a * w - q * this.modulus;
+
+        return (r >= this.modulus ? r - this.modulus : r);
+    }
+
     /**
      * Modular addition.
      *
@@ -157,8 +203,21 @@ public class LongElementaryModMath
     {
         this.inverseModulus = 1.0 / modulus;
         this.modulus = modulus;
+        this.shoupRemainder = (1L << SHOUP_BITS) % modulus;
+
+        long inverseModulus64 = modulus;       // Newton's iteration doubles the correct low bits every time
+        for (int i = 0; i < 5; i++)
+        {
+            inverseModulus64 *= 2 - modulus * inverseModulus64;
+        }
+        this.inverseModulus64 = inverseModulus64;
     }
 
+    // Operands are less than 2^57 so shifting them left by 64 - 58 bits does not overflow
+    private static final int SHOUP_BITS = 58;
+
     private long modulus;
     private double inverseModulus;
+    private long shoupRemainder;
+    private long inverseModulus64;
 }
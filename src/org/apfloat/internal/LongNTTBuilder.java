@@ -65,6 +65,6 @@ public class LongNTTBuilder
     @Override
     protected NTTStrategy createSimpleFNTStrategy(long size)
     {
-        return new LongTableFNTStrategy();
+        return new LongRadix4TableFNTStrategy();
     }
 }
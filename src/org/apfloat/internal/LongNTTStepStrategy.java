@@ -30,7 +30,7 @@ import static org.apfloat.internal.LongModConstants.*;
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -61,11 +61,11 @@ public class LongNTTStepStrategy
 
                 if (this.isInverse)
                 {
-                    inverseTableFNT(arrayAccess, this.wTable, this.permutationTable);
+                    inverseRadix4TableFNT(arrayAccess, this.wTable, this.permutationTable);
                 }
                 else
                 {
-                    tableFNT(arrayAccess, this.wTable, this.permutationTable);
+                    radix4TableFNT(arrayAccess, this.wTable, this.permutationTable);
                 }
             }
         }
@@ -211,8 +211,8 @@ public class LongNTTStepStrategy
     {
         setModulus(MODULUS[modulus]);
         final long[] wTable = (isInverse ?
-                                  LongWTables.getInverseWTable(modulus, length) :
-                                  LongWTables.getWTable(modulus, length));
+                                  LongWTables.getInversePrecomputedWTable(modulus, length) :
+                                  LongWTables.getPrecomputedWTable(modulus, length));
         final int[] permutationTable = (permute ? Scramble.createScrambleTable(length) : null);
 
         ParallelRunnable parallelRunnable = new ParallelRunnable(count)
@@ -0,0 +1,65 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ArrayAccess;
+
+/**
+ * Fast Number Theoretic Transform strategy that uses lookup tables
+ * for powers of n:th root of unity and combines two radix-2 stages
+ * to one radix-4 pass over the data.<p>
+ *
+ * The transform result is identical to {@link LongTableFNTStrategy}, so the
+ * two can be used interchangeably. Since multiplying by the fourth root of
+ * unity is a full modular multiplication, the number of multiplications is
+ * the same; the gain is that the data is loaded and stored half as many times.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class LongRadix4TableFNTStrategy
+    extends LongTableFNTStrategy
+{
+    /**
+     * Default constructor.
+     */
+
+    public LongRadix4TableFNTStrategy()
+    {
+    }
+
+    @Override
+    protected void transform(ArrayAccess arrayAccess, long[] wTable)
+        throws ApfloatRuntimeException
+    {
+        radix4TableFNT(arrayAccess, wTable, null);
+    }
+
+    @Override
+    protected void inverseTransform(ArrayAccess arrayAccess, long[] wTable)
+        throws ApfloatRuntimeException
+    {
+        inverseRadix4TableFNT(arrayAccess, wTable, null);
+    }
+}
@@ -28,7 +28,7 @@ import org.apfloat.spi.ArrayAccess;
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -174,4 +174,376 @@ public class LongTableFNT
             mmax = istep;
         }
     }
+
+    /**
+     * Forward (Sande-Tukey) fast Number Theoretic Transform using a table
+     * of powers of the root of unity with precomputed quotients.
+     * Data length must be a power of two.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus and their precomputed quotients, as returned by {@link LongWTables#getPrecomputedWTable(int,int)}.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     *
+     * @since 1.8.3
+     */
+
+    public void precomputedTableFNT(ArrayAccess arrayAccess, long[] wTable, int[] permutationTable)
+        throws ApfloatRuntimeException
+    {
+        int nn, offset, istep, mmax, r;
+        long[] data;
+
+        data   = arrayAccess.getLongData();
+        offset = arrayAccess.getOffset();
+        nn     = arrayAccess.getLength();
+
+        assert (nn == (nn & -nn));
+
+        if (nn < 2)
+        {
+            return;
+        }
+
+        r = 2;
+        mmax = nn >> 1;
+        while (mmax > 0)
+        {
+            istep = mmax << 1;
+
+            // Optimize first step when wr = 1
+
+            for (int i = offset; i < offset + nn; i += istep)
+            {
+                int j = i + mmax;
+                long a = data[i];
+                long b = data[j];
+                data[i] = modAdd(a, b);
+                data[j] = modSubtract(a, b);
+            }
+
+            int t = r;
+
+            for (int m = 1; m < mmax; m++)
+            {
+                long w = wTable[t],
+                     wPrecomputed = wTable[t + 1];
+                for (int i = offset + m; i < offset + nn; i += istep)
+                {
+                    int j = i + mmax;
+                    long a = data[i];
+                    long b = data[j];
+                    data[i] = modAdd(a, b);
+                    data[j] = modMultiply(modSubtract(a, b), w, wPrecomputed);
+                }
+                t += r;
+            }
+            r <<= 1;
+            mmax >>= 1;
+        }
+
+        if (permutationTable != null)
+        {
+            LongScramble.scramble(data, offset, permutationTable);
+        }
+    }
+
+    /**
+     * Inverse (Cooley-Tukey) fast Number Theoretic Transform using a table
+     * of powers of the root of unity with precomputed quotients.
+     * Data length must be a power of two.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of inverse powers of n:th root of unity <code>w</code> modulo the current modulus and their precomputed quotients, as returned by {@link LongWTables#getInversePrecomputedWTable(int,int)}.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     *
+     * @since 1.8.3
+     */
+
+    public void inversePrecomputedTableFNT(ArrayAccess arrayAccess, long[] wTable, int[] permutationTable)
+        throws ApfloatRuntimeException
+    {
+        int nn, offset, istep, mmax, r;
+        long[] data;
+
+        data   = arrayAccess.getLongData();
+        offset = arrayAccess.getOffset();
+        nn     = arrayAccess.getLength();
+
+        assert (nn == (nn & -nn));
+
+        if (nn < 2)
+        {
+            return;
+        }
+
+        if (permutationTable != null)
+        {
+            LongScramble.scramble(data, offset, permutationTable);
+        }
+
+        r = nn << 1;
+        mmax = 1;
+        while (nn > mmax)
+        {
+            istep = mmax << 1;
+            r >>= 1;
+
+            // Optimize first step when w = 1
+
+            for (int i = offset; i < offset + nn; i += istep)
+            {
+                int j = i + mmax;
+                long wTemp = data[j];
+                data[j] = modSubtract(data[i], wTemp);
+                data[i] = modAdd(data[i], wTemp);
+            }
+
+            int t = r;
+
+            for (int m = 1; m < mmax; m++)
+            {
+                long w = wTable[t],
+                     wPrecomputed = wTable[t + 1];
+                for (int i = offset + m; i < offset + nn; i += istep)
+                {
+                    int j = i + mmax;
+                    long wTemp = modMultiply(data[j], w, wPrecomputed);
+                    data[j] = modSubtract(data[i], wTemp);
+                    data[i] = modAdd(data[i], wTemp);
+                }
+                t += r;
+            }
+            mmax = istep;
+        }
+    }
+
+    /**
+     * Forward (Sande-Tukey) fast Number Theoretic Transform that combines
+     * every two radix-2 stages to one radix-4 pass over the data. The result
+     * is the same as with {@link #precomputedTableFNT(ArrayAccess,long[],int[])},
+     * but the data is read and written only half as many times.
+     * Data length must be a power of two.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus and their precomputed quotients, as returned by {@link LongWTables#getPrecomputedWTable(int,int)}.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     *
+     * @since 1.8.3
+     */
+
+    public void radix4TableFNT(ArrayAccess arrayAccess, long[] wTable, int[] permutationTable)
+        throws ApfloatRuntimeException
+    {
+        int nn, offset, mmax, r;
+        long[] data;
+
+        data   = arrayAccess.getLongData();
+        offset = arrayAccess.getOffset();
+        nn     = arrayAccess.getLength();
+
+        assert (nn == (nn & -nn));
+
+        if (nn < 2)
+        {
+            return;
+        }
+
+        r = 2;
+        mmax = nn >> 1;
+        if ((Integer.numberOfTrailingZeros(nn) & 1) != 0)
+        {
+            // Odd number of stages, so do the first one as a radix-2 stage
+
+            for (int m = 0; m < mmax; m++)
+            {
+                long w = wTable[r * m],
+                     wPrecomputed = wTable[r * m + 1];
+                int i = offset + m,
+                    j = i + mmax;
+                long a = data[i];
+                long b = data[j];
+                data[i] = modAdd(a, b);
+                data[j] = modMultiply(modSubtract(a, b), w, wPrecomputed);
+            }
+            r <<= 1;
+            mmax >>= 1;
+        }
+
+        // Each pass does the stages with half distances 2q and q, where mmax = 2q
+
+        long j = wTable[nn >> 1],                    // w^(n/4) i.e. the fourth root of unity
+             jPrecomputed = wTable[(nn >> 1) + 1];
+        while (mmax > 1)
+        {
+            int q = mmax >> 1,
+                istep = mmax << 1;
+
+            // Optimize first step when w = 1
+
+            for (int i = offset; i < offset + nn; i += istep)
+            {
+                long a = data[i],
+                     b = data[i + q],
+                     c = data[i + mmax],
+                     d = data[i + mmax + q];
+                long ac = modAdd(a, c),
+                     bd = modAdd(b, d),
+                     acd = modSubtract(a, c),
+                     bdd = modMultiply(modSubtract(b, d), j, jPrecomputed);
+                data[i] = modAdd(ac, bd);
+                data[i + q] = modSubtract(ac, bd);
+                data[i + mmax] = modAdd(acd, bdd);
+                data[i + mmax + q] = modSubtract(acd, bdd);
+            }
+
+            for (int m = 1; m < q; m++)
+            {
+                int t1 = r * m,
+                    t2 = r * (m + q),
+                    t3 = 2 * t1;
+                long w1 = wTable[t1],
+                     w1Precomputed = wTable[t1 + 1],
+                     w2 = wTable[t2],
+                     w2Precomputed = wTable[t2 + 1],
+                     w3 = wTable[t3],
+                     w3Precomputed = wTable[t3 + 1];
+                for (int i = offset + m; i < offset + nn; i += istep)
+                {
+                    long a = data[i],
+                         b = data[i + q],
+                         c = data[i + mmax],
+                         d = data[i + mmax + q];
+                    long ac = modAdd(a, c),
+                         bd = modAdd(b, d),
+                         acd = modMultiply(modSubtract(a, c), w1, w1Precomputed),
+                         bdd = modMultiply(modSubtract(b, d), w2, w2Precomputed);
+                    data[i] = modAdd(ac, bd);
+                    data[i + q] = modMultiply(modSubtract(ac, bd), w3, w3Precomputed);
+                    data[i + mmax] = modAdd(acd, bdd);
+                    data[i + mmax + q] = modMultiply(modSubtract(acd, bdd), w3, w3Precomputed);
+                }
+            }
+            r <<= 2;
+            mmax >>= 2;
+        }
+
+        if (permutationTable != null)
+        {
+            LongScramble.scramble(data, offset, permutationTable);
+        }
+    }
+
+    /**
+     * Inverse (Cooley-Tukey) fast Number Theoretic Transform that combines
+     * every two radix-2 stages to one radix-4 pass over the data. The result
+     * is the same as with {@link #inversePrecomputedTableFNT(ArrayAccess,long[],int[])},
+     * but the data is read and written only half as many times.
+     * Data length must be a power of two.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of inverse powers of n:th root of unity <code>w</code> modulo the current modulus and their precomputed quotients, as returned by {@link LongWTables#getInversePrecomputedWTable(int,int)}.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     *
+     * @since 1.8.3
+     */
+
+    public void inverseRadix4TableFNT(ArrayAccess arrayAccess, long[] wTable, int[] permutationTable)
+        throws ApfloatRuntimeException
+    {
+        int nn, offset, mmax, r;
+        long[] data;
+
+        data   = arrayAccess.getLongData();
+        offset = arrayAccess.getOffset();
+        nn     = arrayAccess.getLength();
+
+        assert (nn == (nn & -nn));
+
+        if (nn < 2)
+        {
+            return;
+        }
+
+        if (permutationTable != null)
+        {
+            LongScramble.scramble(data, offset, permutationTable);
+        }
+
+        // Each pass does the stages with half distances q and 2q, where mmax = 2q
+
+        long j = wTable[nn >> 1],                    // w^(-n/4) i.e. the inverse fourth root of unity
+             jPrecomputed = wTable[(nn >> 1) + 1];
+        r = nn >> 1;
+        mmax = 2;
+        while (mmax < nn)
+        {
+            int q = mmax >> 1,
+                istep = mmax << 1;
+
+            // Optimize first step when w = 1
+
+            for (int i = offset; i < offset + nn; i += istep)
+            {
+                long a = data[i],
+                     b = data[i + q],
+                     c = data[i + mmax],
+                     d = data[i + mmax + q];
+                long ab = modAdd(a, b),
+                     abd = modSubtract(a, b),
+                     cd = modAdd(c, d),
+                     cdd = modMultiply(modSubtract(c, d), j, jPrecomputed);
+                data[i] = modAdd(ab, cd);
+                data[i + q] = modAdd(abd, cdd);
+                data[i + mmax] = modSubtract(ab, cd);
+                data[i + mmax + q] = modSubtract(abd, cdd);
+            }
+
+            for (int m = 1; m < q; m++)
+            {
+                int t1 = r * m,
+                    t2 = r * (m + q),
+                    t3 = 2 * t1;
+                long w1 = wTable[t1],
+                     w1Precomputed = wTable[t1 + 1],
+                     w2 = wTable[t2],
+                     w2Precomputed = wTable[t2 + 1],
+                     w3 = wTable[t3],
+                     w3Precomputed = wTable[t3 + 1];
+                for (int i = offset + m; i < offset + nn; i += istep)
+                {
+                    long a = data[i],
+                         b = modMultiply(data[i + q], w3, w3Precomputed),
+                         c = data[i + mmax],
+                         d = modMultiply(data[i + mmax + q], w3, w3Precomputed);
+                    long ab = modAdd(a, b),
+                         abd = modSubtract(a, b),
+                         cd = modMultiply(modAdd(c, d), w1, w1Precomputed),
+                         cdd = modMultiply(modSubtract(c, d), w2, w2Precomputed);
+                    data[i] = modAdd(ab, cd);
+                    data[i + q] = modAdd(abd, cdd);
+                    data[i + mmax] = modSubtract(ab, cd);
+                    data[i + mmax + q] = modSubtract(abd, cdd);
+                }
+            }
+            r >>= 2;
+            mmax <<= 2;
+        }
+
+        if (mmax == nn)
+        {
+            // Odd number of stages, so do the last one as a radix-2 stage
+
+            mmax >>= 1;
+            for (int m = 0; m < mmax; m++)
+            {
+                long w = wTable[2 * m],
+                     wPrecomputed = wTable[2 * m + 1];
+                int i = offset + m,
+                    k = i + mmax;
+                long wTemp = modMultiply(data[k], w, wPrecomputed);
+                data[k] = modSubtract(data[i], wTemp);
+                data[i] = modAdd(data[i], wTemp);
+            }
+        }
+    }
 }
@@ -31,7 +31,7 @@ import static org.apfloat.internal.LongModConstants.*;
  *
  * All access to this class must be externally synchronized.
  *
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -62,11 +62,11 @@ public class LongTableFNTStrategy
         }
 
         setModulus(MODULUS[modulus]);                                       // Modulus
-        long[] wTable = LongWTables.getWTable(modulus, (int) length);
+        long[] wTable = LongWTables.getPrecomputedWTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        tableFNT(arrayAccess, wTable, null);
+        transform(arrayAccess, wTable);
 
         arrayAccess.close();
     }
@@ -86,11 +86,11 @@ public class LongTableFNTStrategy
         }
 
         setModulus(MODULUS[modulus]);                                       // Modulus
-        long[] wTable = LongWTables.getInverseWTable(modulus, (int) length);
+        long[] wTable = LongWTables.getInversePrecomputedWTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        inverseTableFNT(arrayAccess, wTable, null);
+        inverseTransform(arrayAccess, wTable);
 
         divideElements(arrayAccess, (long) totalTransformLength);
 
@@ -102,6 +102,39 @@ public class LongTableFNTStrategy
         return Util.round2up(size);
     }
 
+    /**
+     * Transform the data in the array, using the precomputed
+     * table of powers of the n:th root of unity.
+     *
+     * @param arrayAccess The data to transform.
+     * @param wTable Table of powers of n:th root of unity.
+     *
+     * @since 1.8.3
+     */
+
+    protected void transform(ArrayAccess arrayAccess, long[] wTable)
+        throws ApfloatRuntimeException
+    {
+        precomputedTableFNT(arrayAccess, wTable, null);
+    }
+
+    /**
+     * Inverse transform the data in the array, using the precomputed
+     * table of powers of the inverse n:th root of unity.
+     * The data is not divided by the transform length.
+     *
+     * @param arrayAccess The data to transform.
+     * @param wTable Table of powers of inverse n:th root of unity.
+     *
+     * @since 1.8.3
+     */
+
+    protected void inverseTransform(ArrayAccess arrayAccess, long[] wTable)
+        throws ApfloatRuntimeException
+    {
+        inversePrecomputedTableFNT(arrayAccess, wTable, null);
+    }
+
     private void divideElements(ArrayAccess arrayAccess, long divisor)
         throws ApfloatRuntimeException
     {
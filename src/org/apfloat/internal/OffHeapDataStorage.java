@@ -0,0 +1,320 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.internal;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ArrayAccess;
+import org.apfloat.spi.DataStorage;
+
+/**
+ * Abstract base class for off-heap memory data storage, containing the common
+ * functionality independent of the element type.<p>
+ *
+ * The data is stored in direct buffers, that are allocated outside of the
+ * heap. The buffers are segments of a fixed size, so the total size of the
+ * data is not limited by the maximum size of an array or a buffer, and it
+ * can be more than 2<sup>31</sup> elements. Since the garbage collector
+ * doesn't copy the data, very large temporary data can be kept in memory
+ * without the overhead of huge heap arrays.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public abstract class OffHeapDataStorage
+    extends BlockDataStorage
+{
+    // The segments are shared by the subsequences
+    private static class Segments
+        implements Serializable
+    {
+        public Segments()
+        {
+            this.segments = new ByteBuffer[0];
+        }
+
+        public long getSize()
+        {
+            return this.size;
+        }
+
+        public void setSize(long size)
+            throws ApfloatRuntimeException
+        {
+            int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            ByteBuffer[] segments = new ByteBuffer[count];
+
+            for (int i = 0; i < count; i++)
+            {
+                int segmentSize = (int) Math.min(SEGMENT_SIZE, size - i * SEGMENT_SIZE);
+                ByteBuffer segment = (i < this.segments.length ? this.segments[i] : null);
+
+                if (segment != null && segment.capacity() == segmentSize)
+                {
+                    // Unchanged segment, typically a full one
+                    segments[i] = segment;
+                }
+                else
+                {
+                    // New segments are zero-filled, copy the old contents if the segment existed before
+                    segments[i] = allocate(segmentSize);
+                    if (segment != null)
+                    {
+                        segment = segment.duplicate();
+                        segment.limit(Math.min(segmentSize, segment.capacity()));
+                        segments[i].put(segment);
+                        segments[i].clear();
+                    }
+                }
+            }
+
+            this.segments = segments;
+            this.size = size;
+        }
+
+        public ByteBuffer getBuffer(long position, long size)
+        {
+            ByteBuffer buffer = this.segments[(int) (position / SEGMENT_SIZE)].duplicate();
+            int segmentPosition = (int) (position % SEGMENT_SIZE);
+            buffer.limit((int) Math.min(buffer.capacity(), segmentPosition + size));
+            buffer.position(segmentPosition);
+
+            return buffer.slice();
+        }
+
+        private static ByteBuffer allocate(int size)
+            throws ApfloatRuntimeException
+        {
+            try
+            {
+                return ByteBuffer.allocateDirect(size);
+            }
+            catch (OutOfMemoryError oome)
+            {
+                // Out of direct memory, the limit is set with -XX:MaxDirectMemorySize
+                throw new BackingStorageException("Unable to allocate " + size + " bytes of off-heap memory", oome);
+            }
+        }
+
+        // Writes the contents to the serialization stream
+        private void writeObject(ObjectOutputStream out)
+            throws IOException
+        {
+            out.writeLong(this.size);
+
+            WritableByteChannel channel = Channels.newChannel(out);
+            for (ByteBuffer segment : this.segments)
+            {
+                segment = segment.duplicate();
+                while (segment.hasRemaining())
+                {
+                    channel.write(segment);
+                }
+            }
+
+            out.defaultWriteObject();
+        }
+
+        // Reads the contents from the serialization stream
+        private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException
+        {
+            this.segments = new ByteBuffer[0];
+
+            long size = in.readLong();
+
+            setSize(size);
+
+            ReadableByteChannel channel = Channels.newChannel(in);
+            for (ByteBuffer segment : this.segments)
+            {
+                segment = segment.duplicate();
+                while (segment.hasRemaining())
+                {
+                    if (channel.read(segment) < 0)
+                    {
+                        throw new IOException("Unexpected end of stream");
+                    }
+                }
+            }
+
+            in.defaultReadObject();
+        }
+
+        private static final long serialVersionUID = -8214466349616583227L;
+
+        // These fields are not serialized automatically
+        private transient ByteBuffer[] segments;
+        private transient long size;
+    }
+
+    /**
+     * Default constructor.
+     */
+
+    protected OffHeapDataStorage()
+    {
+        this.segments = new Segments();
+    }
+
+    /**
+     * Subsequence constructor.
+     *
+     * @param offHeapDataStorage The originating data storage.
+     * @param offset The subsequence starting position.
+     * @param length The subsequence length.
+     */
+
+    protected OffHeapDataStorage(OffHeapDataStorage offHeapDataStorage, long offset, long length)
+    {
+        super(offHeapDataStorage, offset, length);
+        this.segments = offHeapDataStorage.segments;
+    }
+
+    @Override
+    public boolean isCached()
+    {
+        return true;
+    }
+
+    @Override
+    protected void implCopyFrom(DataStorage dataStorage, long size)
+        throws ApfloatRuntimeException
+    {
+        if (dataStorage == this)
+        {
+            setSize(size);
+            return;
+        }
+
+        assert (size > 0);
+        assert (!isReadOnly());
+        assert (!isSubsequenced());
+
+        int unitSize = getUnitSize();
+        long byteSize = size * unitSize;
+
+        assert (byteSize > 0);
+
+        // Start from empty segments, so that the data not copied is zero
+        this.segments = new Segments();
+        this.segments.setSize(byteSize);
+
+        long readSize = Math.min(size, dataStorage.getSize());
+
+        if (dataStorage instanceof OffHeapDataStorage)
+        {
+            // Optimized memory-to-memory copy
+
+            OffHeapDataStorage that = (OffHeapDataStorage) dataStorage;
+            long readPosition = that.getOffset() * unitSize,
+                 writePosition = 0,
+                 oldSize = readSize * unitSize;
+            while (oldSize > 0)
+            {
+                ByteBuffer src = that.getBuffer(readPosition, oldSize),
+                           dst = getBuffer(writePosition, oldSize);
+                int count = Math.min(src.remaining(), dst.remaining());
+                src.limit(count);
+                dst.put(src);
+
+                readPosition += count;
+                writePosition += count;
+                oldSize -= count;
+            }
+        }
+        else
+        {
+            // Un-optimized copy from arbitrary data storage
+
+            long position = 0;
+            int bufferSize = getBlockSize() / unitSize;
+            while (readSize > 0)
+            {
+                int length = (int) Math.min(bufferSize, readSize);
+
+                ArrayAccess arrayAccess = dataStorage.getArray(READ, position, length);
+                writeFromArray(arrayAccess, 0, position, length);
+                arrayAccess.close();
+
+                readSize -= length;
+                position += length;
+            }
+        }
+    }
+
+    @Override
+    protected long implGetSize()
+    {
+        return this.segments.getSize() / getUnitSize();
+    }
+
+    @Override
+    protected void implSetSize(long size)
+        throws ApfloatRuntimeException
+    {
+        assert (size > 0);
+        assert (!isReadOnly());
+        assert (!isSubsequenced());
+
+        size *= getUnitSize();
+
+        assert (size > 0);
+
+        this.segments.setSize(size);
+    }
+
+    /**
+     * Get a buffer that accesses the off-heap memory. The memory is
+     * allocated in segments, and the returned buffer ends at the end of
+     * the segment, if the requested range continues past it. The rest
+     * of the range can then be accessed by calling this method again.
+     * The segment size is a multiple of all the element sizes, so an
+     * element never spans two segments.<p>
+     *
+     * The returned buffer is not shared, so its position and limit can
+     * be changed freely. The byte order is the default big-endian order.
+     *
+     * @param position The starting position, in bytes.
+     * @param size The number of bytes to access.
+     *
+     * @return A buffer accessing the off-heap memory, starting at the specified position and ending at most at the specified size.
+     */
+
+    protected final ByteBuffer getBuffer(long position, long size)
+    {
+        return this.segments.getBuffer(position, size);
+    }
+
+    private static final long serialVersionUID = 3384720953648521790L;
+
+    private static final long SEGMENT_SIZE = 1L << 30;     // Size of the direct buffer segments
+
+    private Segments segments;
+}
@@ -19,9 +19,12 @@
 package org.apfloat.internal;
 
 import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
@@ -38,7 +41,7 @@ import org.apfloat.ApfloatRuntimeException;
  * number of processors.
  *
  * @since 1.1
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -113,6 +116,93 @@ public class ParallelRunner
         }
     }
 
+    /**
+     * Run a task in the <code>ExecutorService</code> of the current
+     * {@link ApfloatContext}. The task is run with the same <code>ApfloatContext</code>
+     * as the current thread. The result should be retrieved with {@link #get(FutureTask)}.
+     *
+     * @param callable The task to be run.
+     *
+     * @return The <code>FutureTask</code> for getting the result of the task.
+     *
+     * @since 1.8.3
+     */
+
+    public static <T> FutureTask<T> submit(final Callable<T> callable)
+    {
+        final ApfloatContext ctx = ApfloatContext.getContext();
+        Callable<T> task = new Callable<T>()
+        {
+            public T call()
+                throws Exception
+            {
+                // The task may also be run by the submitting thread, so restore its own context afterwards
+                ApfloatContext threadContext = ApfloatContext.getThreadContext();
+                if (ctx == ApfloatContext.getGlobalContext() && threadContext == null)
+                {
+                    return callable.call();
+                }
+                ApfloatContext.setThreadContext(ctx);
+                try
+                {
+                    return callable.call();
+                }
+                finally
+                {
+                    if (threadContext == null)
+                    {
+                        ApfloatContext.removeThreadContext();
+                    }
+                    else
+                    {
+                        ApfloatContext.setThreadContext(threadContext);
+                    }
+                }
+            }
+        };
+        FutureTask<T> future = new FutureTask<T>(task);
+        ctx.getExecutorService().execute(future);
+        return future;
+    }
+
+    /**
+     * Wait for a task submitted with {@link #submit(Callable)} to complete and get its result.
+     * If no thread has started the task yet, it's run in the current thread; this can't deadlock
+     * even if all the threads of the <code>ExecutorService</code> are waiting. While waiting,
+     * work is stolen from other running tasks as in {@link #wait(Future)}.
+     *
+     * @param future The task to wait for.
+     *
+     * @return The result of the task.
+     *
+     * @exception ApfloatRuntimeException If the task failed or waiting was interrupted.
+     *
+     * @since 1.8.3
+     */
+
+    public static <T> T get(FutureTask<T> future)
+        throws ApfloatRuntimeException
+    {
+        future.run();
+        wait(future);
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException ie)
+        {
+            throw new ApfloatRuntimeException("Waiting for dispatched task to complete was interrupted", ie);
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof ApfloatRuntimeException)
+            {
+                throw (ApfloatRuntimeException) ee.getCause();
+            }
+            throw new ApfloatRuntimeException("Task execution failed", ee);
+        }
+    }
+
     // Implemented as a List because the assumption is that the number of concurrent tasks is very small
     private static Queue<ParallelRunnable> tasks = new ConcurrentLinkedQueue<ParallelRunnable>();
 }
@@ -18,15 +18,16 @@
  */
 package org.apfloat.internal;
 
-import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.MemoryGovernor;
+import org.apfloat.spi.NTTBuilder;
 import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.Util;
 
 /**
  * Convolution using three Number Theoretic Transforms
@@ -36,105 +37,240 @@ import org.apfloat.spi.NTTStrategy;
  * using multiple threads, if the number of processors is greater than one
  * in {@link ApfloatContext#getNumberOfProcessors()}.<p>
  *
- * If the data block to be transformed is larger than the shared memory threshold setting
- * in the current ApfloatContext, this class will synchronize all data access on
- * the shared memory lock retrieved from {@link ApfloatContext#getSharedMemoryLock()}.<p>
+ * The memory for the data storages of the convolution is reserved from the memory
+ * governor retrieved from {@link ApfloatContext#getMemoryGovernor()}. As many convolutions
+ * run concurrently in memory as fit in its budget. If the budget is exhausted and the data
+ * block to be transformed is larger than the shared memory threshold setting in the current
+ * ApfloatContext, the data is stored on disk and transformed in blocks that fit in the
+ * remaining memory. Smaller convolutions only account for their memory in the governor.<p>
+ *
+ * Otherwise, if the data for all three moduli fits in the maximum memory block size,
+ * the convolutions modulo the three moduli are run concurrently in the
+ * <code>ExecutorService</code> of the ApfloatContext, in addition to the
+ * parallelization inside each transform. This way also the copying, scrambling
+ * and element-by-element multiplication phases are run on multiple cores.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
 public class ParallelThreeNTTConvolutionStrategy
     extends ThreeNTTConvolutionStrategy
 {
-    private static class LockFuture
-        extends FutureTask<Void>
+    /**
+     * Creates a new convoluter that uses the specified
+     * transform for transforming the data.
+     *
+     * @param radix The radix to be used.
+     * @param nttStrategy The transform to be used.
+     */
+
+    public ParallelThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    {
+        this(radix, nttStrategy, false);
+    }
+
+    /**
+     * Creates a new convoluter that uses the specified
+     * transform for transforming the data, optionally wrapped.
+     *
+     * @param radix The radix to be used.
+     * @param nttStrategy The transform to be used.
+     * @param wrapped If the convolution is wrapped.
+     *
+     * @see ThreeNTTConvolutionStrategy#ThreeNTTConvolutionStrategy(int,NTTStrategy,boolean)
+     *
+     * @since 1.8.3
+     */
+
+    public ParallelThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy, boolean wrapped)
+    {
+        super(radix, nttStrategy, wrapped);
+        this.radix = radix;
+    }
+
+    @Override
+    protected DataStorage[] convoluteAll(final DataStorage x, final DataStorage y, final long length)
+        throws ApfloatRuntimeException
     {
-        public LockFuture(Lock lock)
+        if (!isConcurrent(length, 2))
         {
-            super(VOID_CALLABLE);
-            this.lock = lock;
+            return super.convoluteAll(x, y, length);
         }
 
-        @Override
-        public boolean isDone()
+        // The NTT and step strategies keep the modulus as state, so each concurrent modulus gets its own ones
+        final ThreeNTTConvolutionStrategy convolution0 = createModulusConvolution(length),
+                                          convolution1 = createModulusConvolution(length);
+
+        FutureTask<DataStorage> resultMod0 = ParallelRunner.submit(new Callable<DataStorage>()
+        {
+            public DataStorage call()
+            {
+                return convolution0.convoluteOne(x, y, length, 0, false);
+            }
+        });
+        FutureTask<DataStorage> resultMod1 = ParallelRunner.submit(new Callable<DataStorage>()
         {
-            return this.lock.tryLock();
+            public DataStorage call()
+            {
+                return convolution1.convoluteOne(x, y, length, 1, false);
+            }
+        });
+        DataStorage resultMod2 = convoluteOne(x, y, length, 2, true);
+
+        return new DataStorage[] { ParallelRunner.get(resultMod0), ParallelRunner.get(resultMod1), resultMod2 };
+    }
+
+    @Override
+    protected DataStorage[] autoConvoluteAll(final DataStorage x, final long length)
+        throws ApfloatRuntimeException
+    {
+        if (!isConcurrent(length, 1))
+        {
+            return super.autoConvoluteAll(x, length);
         }
 
-        private static final Callable<Void> VOID_CALLABLE = new Callable<Void>()
+        final ThreeNTTConvolutionStrategy convolution0 = createModulusConvolution(length),
+                                          convolution1 = createModulusConvolution(length);
+
+        FutureTask<DataStorage> resultMod0 = ParallelRunner.submit(new Callable<DataStorage>()
         {
-            public Void call()
+            public DataStorage call()
             {
-                return null;
+                return convolution0.autoConvoluteOne(x, length, 0, false);
             }
-        };
+        });
+        FutureTask<DataStorage> resultMod1 = ParallelRunner.submit(new Callable<DataStorage>()
+        {
+            public DataStorage call()
+            {
+                return convolution1.autoConvoluteOne(x, length, 1, false);
+            }
+        });
+        DataStorage resultMod2 = autoConvoluteOne(x, length, 2, true);
 
-        private Lock lock;
+        return new DataStorage[] { ParallelRunner.get(resultMod0), ParallelRunner.get(resultMod1), resultMod2 };
     }
 
     /**
-     * Creates a new convoluter that uses the specified
-     * transform for transforming the data.
+     * Check if the convolutions modulo the three moduli should be run concurrently.
+     * This is the case when multiple processors are available, the data is not
+     * bigger than the shared memory threshold, and the data storages of all
+     * three moduli fit in the maximum memory block size.
      *
-     * @param radix The radix to be used.
-     * @param nttStrategy The transform to be used.
+     * @param length Length of the transformation.
+     * @param dataStorages Number of transform length data storages needed per modulus.
+     *
+     * @return If the moduli should be convoluted concurrently.
+     *
+     * @since 1.8.3
      */
 
-    public ParallelThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    protected boolean isConcurrent(long length, int dataStorages)
     {
-        super(radix, nttStrategy);
+        ApfloatContext ctx = ApfloatContext.getContext();
+        long size = length * ctx.getBuilderFactory().getElementSize();
+
+        return ctx.getNumberOfProcessors() > 1 &&
+               size <= ctx.getSharedMemoryTreshold() &&
+               size <= ctx.getMaxMemoryBlockSize() / (3 * dataStorages);
+    }
+
+    private ThreeNTTConvolutionStrategy createModulusConvolution(long length)
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        return new ThreeNTTConvolutionStrategy(this.radix, nttBuilder.createNTT(length));
     }
 
     @Override
     protected void lock(long length)
     {
-        assert(this.key == null);
+        assert (this.reservation == 0);
 
         if (super.nttStrategy instanceof Parallelizable &&
             super.carryCRTStrategy instanceof Parallelizable &&
             super.stepStrategy instanceof Parallelizable)
         {
             ApfloatContext ctx = ApfloatContext.getContext();
-            if (length > ctx.getSharedMemoryTreshold() / ctx.getBuilderFactory().getElementSize())
+            MemoryGovernor memoryGovernor = ctx.getMemoryGovernor();
+            int elementSize = ctx.getBuilderFactory().getElementSize();
+            long size = length * elementSize,
+                 reservation = getReservation(length, Math.min(size, ctx.getMaxMemoryBlockSize()));
+
+            if (size <= ctx.getSharedMemoryTreshold())
+            {
+                // Data size is small: just account for the memory, as waiting or using the disk would cost more than it saves
+                memoryGovernor.reserve(reservation);
+            }
+            else if (!memoryGovernor.tryReserve(reservation))
             {
-                // Data size is big: synchronize on shared memory lock
-                this.key = ctx.getSharedMemoryLock();
-
-                if (this.key != null)
-                {
-                    Lock lock;
-                    synchronized (ParallelThreeNTTConvolutionStrategy.locks)
-                    {
-                        lock = ParallelThreeNTTConvolutionStrategy.locks.get(this.key);
-                        if (lock == null)
-                        {
-                            lock = new ReentrantLock();
-                            ParallelThreeNTTConvolutionStrategy.locks.put(this.key, lock);
-                        }
-                    }
-                    ParallelRunner.wait(new LockFuture(lock));
-                }
+                // Data size is big and the memory budget is exhausted: spill the data to disk and
+                // transform it in blocks that fit in the remaining memory, but at least one row or column
+                int dataStorages = getDataStorages(length);
+                long minimumBlockSize = Util.round2up((long) Math.sqrt(2.0 * length)) * elementSize,
+                     maxMemoryBlockSize = Math.min(memoryGovernor.getAvailable() / dataStorages, ctx.getMaxMemoryBlockSize());
+                maxMemoryBlockSize = Util.round2down(Math.max(maxMemoryBlockSize, minimumBlockSize));
+
+                ApfloatContext spillContext = (ApfloatContext) ctx.clone();
+                spillContext.setMaxMemoryBlockSize(maxMemoryBlockSize);
+                reservation = getReservation(length, Math.min(size, spillContext.getMaxMemoryBlockSize()));
+                memoryGovernor.reserve(reservation);        // Can exceed the budget only by the minimum block size
+
+                this.threadContext = ApfloatContext.getThreadContext();
+                this.unspilledNTTStrategy = super.nttStrategy;
+                ApfloatContext.setThreadContext(spillContext);
+                NTTBuilder nttBuilder = spillContext.getBuilderFactory().getNTTBuilder();
+                super.nttStrategy = nttBuilder.createNTT(length);
             }
+            this.reservation = reservation;
+            this.memoryGovernor = memoryGovernor;
         }
     }
 
     @Override
     protected void unlock()
     {
-        if (this.key != null)
+        if (this.unspilledNTTStrategy != null)
         {
-            synchronized (ParallelThreeNTTConvolutionStrategy.locks)
+            super.nttStrategy = this.unspilledNTTStrategy;
+            this.unspilledNTTStrategy = null;
+            if (this.threadContext != null)
+            {
+                ApfloatContext.setThreadContext(this.threadContext);
+                this.threadContext = null;
+            }
+            else
             {
-                ParallelThreeNTTConvolutionStrategy.locks.get(this.key).unlock();
+                ApfloatContext.removeThreadContext();
             }
         }
+        if (this.memoryGovernor != null)
+        {
+            this.memoryGovernor.release(this.reservation);
+            this.memoryGovernor = null;
+            this.reservation = 0;
+        }
+    }
+
+    // Memory needed for data storages of the specified size in bytes
+    private long getReservation(long length, long size)
+    {
+        return size * getDataStorages(length);
     }
 
-    private static Map<Object, Lock> locks = new WeakHashMap<Object, Lock>();
+    // The results of the three moduli, and the transformed operands of the moduli that are convoluted at the same time
+    private int getDataStorages(long length)
+    {
+        return 3 + 2 * (isConcurrent(length, 2) ? 3 : 1);
+    }
 
-    private Object key;
+    private MemoryGovernor memoryGovernor;
+    private long reservation;
+    private ApfloatContext threadContext;
+    private NTTStrategy unspilledNTTStrategy;
+    private int radix;
 }
@@ -18,6 +18,9 @@
  */
 package org.apfloat.internal;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.BuilderFactory;
@@ -34,27 +37,30 @@ import org.apfloat.spi.DataStorage;
  * if the data fits in memory.<p>
  *
  * The parallelization works so that the carry-CRT is done in
- * blocks in parallel. As a final step, a second pass is done
- * through the data set to propagate the carries from one block
- * to the next.<p>
+ * blocks in parallel. As a final step, the carries are propagated
+ * from one block to the next. This is done without blocking: of two
+ * adjacent blocks, the one that finishes later propagates the carry
+ * of the first block through the second block, and then continues with
+ * the following blocks as long as they have been finished. Usually the
+ * carry affects only the first few elements of each block.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @see CarryCRTStepStrategy
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
 public class StepCarryCRTStrategy
     implements CarryCRTStrategy, Parallelizable
 {
-    // Runnable for calculating the carry-CRT in blocks, then get the carry of the previous block, add it, and provide carry to the next block
+    // Runnable for calculating the carry-CRT in blocks, then add the carry of the previous block, and provide carry to the next block
     private class CarryCRTRunnable<T>
         implements Runnable
     {
-        public CarryCRTRunnable(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, DataStorage dataStorage, long size, long resultSize, long offset, long length, MessagePasser<Long, T> messagePasser, CarryCRTStepStrategy<T> stepStrategy)
+        public CarryCRTRunnable(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, DataStorage dataStorage, long size, long resultSize, long offset, long length, ConcurrentMap<Long, Object> carries, CarryCRTStepStrategy<T> stepStrategy)
         {
             this.resultMod0 = resultMod0;
             this.resultMod1 = resultMod1;
@@ -64,33 +70,51 @@ public class StepCarryCRTStrategy
             this.resultSize = resultSize;
             this.offset = offset;
             this.length = length;
-            this.messagePasser = messagePasser;
+            this.carries = carries;
             this.stepStrategy = stepStrategy;
         }
 
+        @SuppressWarnings("unchecked")
         public void run()
         {
-            T results = this.stepStrategy.crt(this.resultMod0, this.resultMod1, this.resultMod2, this.dataStorage, this.size, this.resultSize, this.offset, this.length);
+            this.results = this.stepStrategy.crt(this.resultMod0, this.resultMod1, this.resultMod2, this.dataStorage, this.size, this.resultSize, this.offset, this.length);
 
-            // Finishing step - get the carry from the previous block and propagate it through the data
+            // Finishing step - if the carry from the previous block is available, propagate it through the data,
+            // otherwise leave this block for the thread that finishes the previous block
             if (this.offset > 0)
             {
-                T previousResults = this.messagePasser.receiveMessage(this.offset);
-
-                results = this.stepStrategy.carry(this.dataStorage, this.size, this.resultSize, this.offset, this.length, results, previousResults);
+                Object previousResults = this.carries.putIfAbsent(this.offset, this);
+                if (previousResults == null)
+                {
+                    return;
+                }
+                this.carries.remove(this.offset);
+
+                this.results = this.stepStrategy.carry(this.dataStorage, this.size, this.resultSize, this.offset, this.length, this.results, (T) previousResults);
             }
 
-            // Finally, send the carry to the next block
-            this.messagePasser.sendMessage(this.offset + this.length, results);
-
-            // Last block sanity check
-            if (this.offset + this.length == this.size)
+            // Then provide the carry to the next block, and continue propagating it through the next blocks as long as they are already finished
+            CarryCRTRunnable<T> block = this;
+            long nextOffset;
+            while ((nextOffset = block.offset + block.length) < this.size)
             {
-                assert (results != null);
-                assert (java.lang.reflect.Array.getLength(results) == 2);
-                assert (((Number) java.lang.reflect.Array.get(results, 0)).longValue() == 0);
-                assert (((Number) java.lang.reflect.Array.get(results, 1)).longValue() == 0);
+                Object nextBlock = this.carries.putIfAbsent(nextOffset, block.results);
+                if (nextBlock == null)
+                {
+                    return;
+                }
+                this.carries.remove(nextOffset);
+
+                T results = block.results;
+                block = (CarryCRTRunnable<T>) nextBlock;
+                block.results = this.stepStrategy.carry(this.dataStorage, this.size, this.resultSize, block.offset, block.length, block.results, results);
             }
+
+            // Last block sanity check
+            assert (block.results != null);
+            assert (java.lang.reflect.Array.getLength(block.results) == 2);
+            assert (((Number) java.lang.reflect.Array.get(block.results, 0)).longValue() == 0);
+            assert (((Number) java.lang.reflect.Array.get(block.results, 1)).longValue() == 0);
         }
 
         private DataStorage resultMod0,
@@ -101,8 +125,9 @@ public class StepCarryCRTStrategy
                      resultSize,
                      offset,
                      length;
-        private MessagePasser<Long, T> messagePasser;
+        private ConcurrentMap<Long, Object> carries;
         private CarryCRTStepStrategy<T> stepStrategy;
+        private T results;
     }
 
     /**
@@ -196,7 +221,8 @@ public class StepCarryCRTStrategy
         ApfloatContext ctx = ApfloatContext.getContext();
         BuilderFactory builderFactory = ctx.getBuilderFactory();
 
-        final MessagePasser<Long, T> messagePasser = new MessagePasser<Long, T>();
+        // For each block boundary, either the carry of the previous block or the next block waiting for it, whichever is finished first
+        final ConcurrentMap<Long, Object> carries = new ConcurrentHashMap<Long, Object>();
         final CarryCRTStepStrategy<T> stepStrategy = builderFactory.getCarryCRTBuilder(elementArrayType).createCarryCRTSteps(this.radix);
 
         ParallelRunnable parallelRunnable = new ParallelRunnable(size)
@@ -204,7 +230,7 @@ public class StepCarryCRTStrategy
             @Override
             public Runnable getRunnable(long offset, long length)
             {
-                return new CarryCRTRunnable<T>(resultMod0, resultMod1, resultMod2, dataStorage, size, resultSize, offset, length, messagePasser, stepStrategy);
+                return new CarryCRTRunnable<T>(resultMod0, resultMod1, resultMod2, dataStorage, size, resultSize, offset, length, carries, stepStrategy);
             }
         };
         return parallelRunnable;
@@ -18,6 +18,10 @@
  */
 package org.apfloat.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.BuilderFactory;
@@ -35,10 +39,16 @@ import org.apfloat.spi.DataStorage;
  * Multiplication can be done in linear time in the transform domain, where
  * the multiplication is simply an element-by-element multiplication.<p>
  *
+ * A wrapped convolution uses a transform that is shorter than the full
+ * product: the transform is a cyclic convolution, so the least significant
+ * part of the product wraps around and is added to the most significant part.
+ * This is useful for middle products, e.g. in Newton's iterations, where the
+ * most significant part of the product is known in advance.<p>
+ *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -54,12 +64,37 @@ public class ThreeNTTConvolutionStrategy
      */
 
     public ThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    {
+        this(radix, nttStrategy, false);
+    }
+
+    /**
+     * Creates a new convoluter that uses the specified
+     * transform for transforming the data, optionally wrapped.<p>
+     *
+     * A wrapped convolution of data sets <code>x</code> and <code>y</code> uses
+     * the transform length <code>n</code> for <code>resultSize</code>, instead of
+     * the full size of the product. The result of {@link #convolute(DataStorage,DataStorage,long)}
+     * then has <code>n + 2</code> elements, and its value is congruent to
+     * <code>x * y * base<sup>n + 1 - size(x) - size(y)</sup></code> modulo
+     * <code>base<sup>n</sup> - 1</code>. The <code>resultSize</code> must not
+     * be less than the size of either data set.
+     *
+     * @param radix The radix to be used.
+     * @param nttStrategy The transform to be used.
+     * @param wrapped If the convolution is wrapped.
+     *
+     * @since 1.8.3
+     */
+
+    public ThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy, boolean wrapped)
     {
         ApfloatContext ctx = ApfloatContext.getContext();
         BuilderFactory builderFactory = ctx.getBuilderFactory();
         this.nttStrategy = nttStrategy;
         this.carryCRTStrategy = builderFactory.getCarryCRTBuilder(builderFactory.getElementArrayType()).createCarryCRT(radix);
         this.stepStrategy = builderFactory.getNTTBuilder().createNTTConvolutionSteps();
+        this.wrapped = wrapped;
     }
 
     public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
@@ -70,17 +105,17 @@ public class ThreeNTTConvolutionStrategy
             return autoConvolute(x, resultSize);
         }
 
-        long length = this.nttStrategy.getTransformLength(x.getSize() + y.getSize());
+        long length = getTransformLength(x.getSize() + y.getSize(), resultSize);
 
         DataStorage result;
         lock(length);
         try
         {
-            DataStorage resultMod0 = convoluteOne(x, y, length, 0, false),
-                        resultMod1 = convoluteOne(x, y, length, 1, false),
-                        resultMod2 = convoluteOne(x, y, length, 2, true);
+            DataStorage[] resultMod = convoluteAll(x, y, length);
+
+            result = this.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultMod[2], getCarryCRTSize(length, resultSize));
 
-            result = this.carryCRTStrategy.carryCRT(resultMod0, resultMod1, resultMod2, resultSize);
+            release(resultMod);
         }
         finally
         {
@@ -89,6 +124,29 @@ public class ThreeNTTConvolutionStrategy
         return result;
     }
 
+    /**
+     * Performs the convolution modulo each of the three moduli, of the specified transform length.
+     * This implementation convolutes the moduli one after another.
+     *
+     * @param x First data set.
+     * @param y Second data set.
+     * @param length Length of the transformation.
+     *
+     * @return The results of the convolution for moduli 0, 1 and 2.
+     *
+     * @since 1.8.3
+     */
+
+    protected DataStorage[] convoluteAll(DataStorage x, DataStorage y, long length)
+        throws ApfloatRuntimeException
+    {
+        DataStorage resultMod0 = convoluteOne(x, y, length, 0, false),
+                    resultMod1 = convoluteOne(x, y, length, 1, false),
+                    resultMod2 = convoluteOne(x, y, length, 2, true);
+
+        return new DataStorage[] { resultMod0, resultMod1, resultMod2 };
+    }
+
     /**
      * Performs a convolution modulo one modulus, of the specified transform length.
      *
@@ -104,10 +162,23 @@ public class ThreeNTTConvolutionStrategy
     protected DataStorage convoluteOne(DataStorage x, DataStorage y, long length, int modulus, boolean cached)
         throws ApfloatRuntimeException
     {
-        DataStorage tmpY = createCachedDataStorage(length);
-        tmpY.copyFrom(y, length);                               // Using a cached data storage here can avoid an extra write
-        this.nttStrategy.transform(tmpY, modulus);
-        tmpY = createDataStorage(tmpY);
+        if (x.isPinned() && !y.isPinned())
+        {
+            // Transform the pinned data set only once
+            DataStorage tmp = x;
+            x = y;
+            y = tmp;
+        }
+
+        DataStorage tmpY = transformPinned(y, length, modulus);
+        boolean pinned = (tmpY != null);
+        if (!pinned)
+        {
+            tmpY = createCachedDataStorage(length);
+            tmpY.copyFrom(y, length);                           // Using a cached data storage here can avoid an extra write
+            this.nttStrategy.transform(tmpY, modulus);
+            tmpY = createDataStorage(tmpY);
+        }
 
         DataStorage tmpX = createCachedDataStorage(length);
         tmpX.copyFrom(x, length);
@@ -115,12 +186,65 @@ public class ThreeNTTConvolutionStrategy
 
         this.stepStrategy.multiplyInPlace(tmpX, tmpY, modulus);
 
+        if (!pinned)
+        {
+            tmpY.release();                                     // The cached transform of a pinned data set is kept
+        }
+
         this.nttStrategy.inverseTransform(tmpX, modulus, length);
         tmpX = (cached ? tmpX : createDataStorage(tmpX));
 
         return tmpX;
     }
 
+    /**
+     * Gets the transform of a pinned data set from its transform cache.
+     * If the transform is not cached yet, it is calculated and cached.
+     *
+     * @param y The data set.
+     * @param length Length of the transformation.
+     * @param modulus Which modulus to use.
+     *
+     * @return The transformed data, or <code>null</code> if the data set is not pinned.
+     *
+     * @since 1.8.3
+     */
+
+    protected DataStorage transformPinned(DataStorage y, long length, int modulus)
+        throws ApfloatRuntimeException
+    {
+        if (!y.isPinned())
+        {
+            return null;
+        }
+
+        List<Object> key = Arrays.asList(getTransformLayout(this.nttStrategy), length, modulus);
+        DataStorage tmpY = y.getCachedTransform(key);
+        if (tmpY == null)
+        {
+            tmpY = createCachedDataStorage(length);
+            tmpY.copyFrom(y, length);
+            this.nttStrategy.transform(tmpY, modulus);
+            tmpY = createDataStorage(tmpY);
+            tmpY.setReadOnly();
+            y.putCachedTransform(key, tmpY);
+        }
+        return tmpY;
+    }
+
+    // The transformed data can be reused only by the same kind of transform, including the underlying transform of a factor-3 transform
+    private static List<Class<?>> getTransformLayout(NTTStrategy nttStrategy)
+    {
+        List<Class<?>> layout = new ArrayList<Class<?>>();
+        layout.add(nttStrategy.getClass());
+        while (nttStrategy instanceof Factor3NTTStrategy)
+        {
+            nttStrategy = ((Factor3NTTStrategy) nttStrategy).getFactor2Strategy();
+            layout.add(nttStrategy.getClass());
+        }
+        return layout;
+    }
+
     /**
      * Convolutes a data set with itself.
      *
@@ -133,17 +257,17 @@ public class ThreeNTTConvolutionStrategy
     protected DataStorage autoConvolute(DataStorage x, long resultSize)
         throws ApfloatRuntimeException
     {
-        long length = this.nttStrategy.getTransformLength(x.getSize() * 2);
+        long length = getTransformLength(x.getSize() * 2, resultSize);
 
         DataStorage result;
         lock(length);
         try
         {
-            DataStorage resultMod0 = autoConvoluteOne(x, length, 0, false),
-                        resultMod1 = autoConvoluteOne(x, length, 1, false),
-                        resultMod2 = autoConvoluteOne(x, length, 2, true);
+            DataStorage[] resultMod = autoConvoluteAll(x, length);
+
+            result = this.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultMod[2], getCarryCRTSize(length, resultSize));
 
-            result = this.carryCRTStrategy.carryCRT(resultMod0, resultMod1, resultMod2, resultSize);
+            release(resultMod);
         }
         finally
         {
@@ -152,6 +276,28 @@ public class ThreeNTTConvolutionStrategy
         return result;
     }
 
+    /**
+     * Performs the autoconvolution modulo each of the three moduli, of the specified transform length.
+     * This implementation convolutes the moduli one after another.
+     *
+     * @param x The data set.
+     * @param length Length of the transformation.
+     *
+     * @return The results of the convolution for moduli 0, 1 and 2.
+     *
+     * @since 1.8.3
+     */
+
+    protected DataStorage[] autoConvoluteAll(DataStorage x, long length)
+        throws ApfloatRuntimeException
+    {
+        DataStorage resultMod0 = autoConvoluteOne(x, length, 0, false),
+                    resultMod1 = autoConvoluteOne(x, length, 1, false),
+                    resultMod2 = autoConvoluteOne(x, length, 2, true);
+
+        return new DataStorage[] { resultMod0, resultMod1, resultMod2 };
+    }
+
     /**
      * Performs an autoconvolution modulo one modulus, of the specified transform length.
      *
@@ -178,6 +324,30 @@ public class ThreeNTTConvolutionStrategy
         return tmp;
     }
 
+    /**
+     * Returns if this convolution is wrapped.
+     *
+     * @return <code>true</code> if this convolution is wrapped, <code>false</code> if it is a full convolution.
+     *
+     * @since 1.8.3
+     */
+
+    public boolean isWrapped()
+    {
+        return this.wrapped;
+    }
+
+    private long getTransformLength(long size, long resultSize)
+    {
+        return this.nttStrategy.getTransformLength(this.wrapped ? resultSize : size);
+    }
+
+    private long getCarryCRTSize(long length, long resultSize)
+    {
+        // A wrapped result has the whole cyclic convolution and the carry out of it, which can take two elements
+        return (this.wrapped ? length + 2 : resultSize);
+    }
+
     /**
      * Lock the execution against a synchronization lock.
      *
@@ -214,6 +384,8 @@ public class ThreeNTTConvolutionStrategy
 
     /**
      * Create a cached data storage from the (possibly) cached data storage.
+     * If the data is copied to a new data storage, the argument data storage
+     * is released, so it must not be used after calling this method.
      *
      * @param dataStorage The data storage, which may be cached.
      *
@@ -225,7 +397,22 @@ public class ThreeNTTConvolutionStrategy
     {
         ApfloatContext ctx = ApfloatContext.getContext();
         DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
-        return dataStorageBuilder.createDataStorage(dataStorage);
+        DataStorage result = dataStorageBuilder.createDataStorage(dataStorage);
+        if (result != dataStorage)
+        {
+            dataStorage.release();
+        }
+        return result;
+    }
+
+    // The temporary data storages are owned by this class, so their memory can be reused after the carry-CRT
+    private static void release(DataStorage[] dataStorages)
+        throws ApfloatRuntimeException
+    {
+        for (DataStorage dataStorage : dataStorages)
+        {
+            dataStorage.release();
+        }
     }
 
     /**
@@ -245,4 +432,6 @@ public class ThreeNTTConvolutionStrategy
      */
 
     protected NTTConvolutionStepStrategy stepStrategy;
+
+    private boolean wrapped;
 }
@@ -18,6 +18,9 @@
  */
 package org.apfloat.internal;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.DataStorage;
@@ -58,6 +61,13 @@ import org.apfloat.spi.Util;
  * is b also. Reading very short blocks of data from hard disks can be prohibitively
  * slow.<p>
  *
+ * The blocks are processed in a pipeline: while one block is transformed, the
+ * previous block is written back and the next block is read in a background thread
+ * from the <code>ExecutorService</code> of the current {@link ApfloatContext}.
+ * This way the computation and the I/O overlap, instead of alternating. Since two
+ * blocks are then in memory at the same time, each block can only use half of the
+ * available memory.<p>
+ *
  * When reading the column data to be transformed, the data can be transposed to
  * rows by reading the b-length blocks to proper locations in memory and then
  * transposing the b x b blocks.<p>
@@ -72,7 +82,7 @@ import org.apfloat.spi.Util;
  * @see DataStorage#getTransposedArray(int,int,int,int)
  *
  * @since 1.7.0
- * @version 1.8.1
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -88,91 +98,97 @@ public class TwoPassFNTStrategy
     }
 
     @Override
-    protected void transform(DataStorage dataStorage, int n1, int n2, long length, int modulus)
+    protected void transform(final DataStorage dataStorage, final int n1, final int n2, final long length, final int modulus)
         throws ApfloatRuntimeException
     {
         assert (n2 >= n1);
 
-        int maxBlockSize = getMaxMemoryBlockSize(length),   // Maximum memory array size that can be allocated
-            b;
+        int maxBlockSize = getMaxMemoryBlockSize(length);   // Maximum memory array size that can be allocated
 
         if (n1 > maxBlockSize || n2 > maxBlockSize)
         {
             throw new ApfloatInternalException("Not enough memory available to fit one row or column of matrix to memory; n1=" + n1 + ", n2=" + n2 + ", available=" + maxBlockSize);
         }
 
-        b = maxBlockSize / n1;
-
-        for (int i = 0; i < n2; i += b)
+        runPass(new Pass()
         {
-            // Read the data in n1 x b blocks, transposed
-            ArrayAccess arrayAccess = getColumns(dataStorage, i, b, n1);
-
-            // Do b transforms of size n1
-            transformColumns(arrayAccess, n1, b, false, modulus);
-
-            arrayAccess.close();
-        }
-
-        b = maxBlockSize / n2;
-
-        for (int i = 0; i < n1; i += b)
+            public ArrayAccess getBlock(int i, int b)
+            {
+                // Read the data in n1 x b blocks, transposed
+                return getColumns(dataStorage, i, b, n1);
+            }
+
+            public void transformBlock(ArrayAccess arrayAccess, int i, int b)
+            {
+                // Do b transforms of size n1
+                transformColumns(arrayAccess, n1, b, false, modulus);
+            }
+        }, n2, n1, maxBlockSize);
+
+        runPass(new Pass()
         {
-            // Read the data in b x n2 blocks
-            ArrayAccess arrayAccess = getRows(dataStorage, i, b, n2);
-
-            // Multiply each matrix element by w^(i*j)
-            multiplyElements(arrayAccess, i, 0, b, n2, length, 1, false, modulus);
-
-            // Do b transforms of size n2
-            transformRows(arrayAccess, n2, b, false, modulus);
-
-            arrayAccess.close();
-        }
+            public ArrayAccess getBlock(int i, int b)
+            {
+                // Read the data in b x n2 blocks
+                return getRows(dataStorage, i, b, n2);
+            }
+
+            public void transformBlock(ArrayAccess arrayAccess, int i, int b)
+            {
+                // Multiply each matrix element by w^(i*j)
+                multiplyElements(arrayAccess, i, 0, b, n2, length, 1, false, modulus);
+
+                // Do b transforms of size n2
+                transformRows(arrayAccess, n2, b, false, modulus);
+            }
+        }, n1, n2, maxBlockSize);
     }
 
     @Override
-    protected void inverseTransform(DataStorage dataStorage, int n1, int n2, long length, long totalTransformLength, int modulus)
+    protected void inverseTransform(final DataStorage dataStorage, final int n1, final int n2, final long length, final long totalTransformLength, final int modulus)
         throws ApfloatRuntimeException
     {
         assert (n2 >= n1);
 
-        int maxBlockSize = getMaxMemoryBlockSize(length),   // Maximum memory array size that can be allocated
-            b;
+        int maxBlockSize = getMaxMemoryBlockSize(length);   // Maximum memory array size that can be allocated
 
         if (n1 > maxBlockSize || n2 > maxBlockSize)
         {
             throw new ApfloatInternalException("Not enough memory available to fit one row or column of matrix to memory; n1=" + n1 + ", n2=" + n2 + ", available=" + maxBlockSize);
         }
 
-        b = maxBlockSize / n2;
-
-        for (int i = 0; i < n1; i += b)
+        runPass(new Pass()
         {
-            // Read the data in b x n2 blocks
-            ArrayAccess arrayAccess = getRows(dataStorage, i, b, n2);
-
-            // Do b transforms of size n2
-            transformRows(arrayAccess, n2, b, true, modulus);
-
-            // Multiply each matrix element by w^(i*j) / n
-            multiplyElements(arrayAccess, i, 0, b, n2, length, totalTransformLength, true, modulus);
-
-            arrayAccess.close();
-        }
-
-        b = maxBlockSize / n1;
-
-        for (int i = 0; i < n2; i += b)
+            public ArrayAccess getBlock(int i, int b)
+            {
+                // Read the data in b x n2 blocks
+                return getRows(dataStorage, i, b, n2);
+            }
+
+            public void transformBlock(ArrayAccess arrayAccess, int i, int b)
+            {
+                // Do b transforms of size n2
+                transformRows(arrayAccess, n2, b, true, modulus);
+
+                // Multiply each matrix element by w^(i*j) / n
+                multiplyElements(arrayAccess, i, 0, b, n2, length, totalTransformLength, true, modulus);
+            }
+        }, n1, n2, maxBlockSize);
+
+        runPass(new Pass()
         {
-            // Read the data in n1 x b blocks, transposed
-            ArrayAccess arrayAccess = getColumns(dataStorage, i, b, n1);
-
-            // Do b transforms of size n1
-            transformColumns(arrayAccess, n1, b, true, modulus);
-
-            arrayAccess.close();
-        }
+            public ArrayAccess getBlock(int i, int b)
+            {
+                // Read the data in n1 x b blocks, transposed
+                return getColumns(dataStorage, i, b, n1);
+            }
+
+            public void transformBlock(ArrayAccess arrayAccess, int i, int b)
+            {
+                // Do b transforms of size n1
+                transformColumns(arrayAccess, n1, b, true, modulus);
+            }
+        }, n2, n1, maxBlockSize);
     }
 
     /**
@@ -266,6 +282,68 @@ public class TwoPassFNTStrategy
         super.stepStrategy.transformRows(arrayAccess, length, count, isInverse, false, modulus);
     }
 
+    // One pass through the data matrix, in blocks of b columns or rows starting from i
+    private interface Pass
+    {
+        public ArrayAccess getBlock(int i, int b);
+
+        public void transformBlock(ArrayAccess arrayAccess, int i, int b);
+    }
+
+    // Process count columns or rows of the specified length; if there are several blocks, the previous block is written and the next block is read in the background while a block is transformed, so two blocks must fit in the memory
+    private static void runPass(final Pass pass, final int count, int length, int maxBlockSize)
+        throws ApfloatRuntimeException
+    {
+        int blockSize = maxBlockSize / length;
+
+        if (blockSize >= count || blockSize < 2)
+        {
+            // Just one block, or two blocks won't fit in the memory
+            for (int i = 0; i < count; i += blockSize)
+            {
+                ArrayAccess arrayAccess = pass.getBlock(i, blockSize);
+                pass.transformBlock(arrayAccess, i, blockSize);
+                arrayAccess.close();
+            }
+            return;
+        }
+
+        final int b = blockSize / 2;
+
+        ArrayAccess arrayAccess = pass.getBlock(0, b),
+                    previous = null;
+
+        for (int i = 0; i < count; i += b)
+        {
+            final ArrayAccess written = previous;
+            final int next = i + b;
+            FutureTask<ArrayAccess> future = ParallelRunner.submit(new Callable<ArrayAccess>()
+            {
+                public ArrayAccess call()
+                {
+                    if (written != null)
+                    {
+                        written.close();
+                    }
+                    return (next < count ? pass.getBlock(next, b) : null);
+                }
+            });
+
+            try
+            {
+                pass.transformBlock(arrayAccess, i, b);
+            }
+            finally
+            {
+                // Don't leave the background I/O running, even if the transform failed
+                previous = arrayAccess;
+                arrayAccess = ParallelRunner.get(future);
+            }
+        }
+
+        previous.close();
+    }
+
     private int getMaxMemoryBlockSize(long length)
     {
         ApfloatContext ctx = ApfloatContext.getContext();
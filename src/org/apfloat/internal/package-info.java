@@ -121,7 +121,7 @@ point to the <code>int</code> version, but all four versions have similar classe
       and the final result calculated using the Chinese Remainder Theorem
       ({@link org.apfloat.internal.ThreeNTTConvolutionStrategy}), for big numbers.</li>
   <li>Different NTT algorithms for different transform lengths: basic fast NTT
-      ({@link org.apfloat.internal.IntTableFNTStrategy}) when the entire transform
+      ({@link org.apfloat.internal.IntRadix4TableFNTStrategy}) when the entire transform
       fits in the processor cache, "six-step" NTT when the transform fits in the
       main memory ({@link org.apfloat.internal.SixStepFNTStrategy}),
       and a disk-based "two-pass" NTT strategy when the whole transform doesn't
@@ -31,7 +31,7 @@ import org.apfloat.ApfloatRuntimeException;
  * A class implementing <code>ApfloatImpl</code> is not required to accept any other <code>ApfloatImpl</code>
  * class as the argument than the same implementing class.
  *
- * @version 1.7.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -61,6 +61,29 @@ public interface ApfloatImpl
     public ApfloatImpl multiply(ApfloatImpl x)
         throws ApfloatRuntimeException;
 
+    /**
+     * Multiply this object by an <code>ApfloatImpl</code>, when the product is
+     * known to be close to one, and subtract one from the product.<p>
+     *
+     * The leading digits of the product cancel, so they don't need to be
+     * calculated. The implementation can then use a wrapped convolution,
+     * that is shorter than the full product (a middle product). This is
+     * useful e.g. in Newton's iterations for the inverse and the inverse root.<p>
+     *
+     * The result has the precision that <code>this * x</code> would have
+     * after subtracting one from it.
+     *
+     * @param x The number to be multiplied by this <code>ApfloatImpl</code>.
+     * @param equalDigits The number of digits for which <code>|this * x - 1| &lt; radix<sup>-equalDigits</sup></code> is known to hold.
+     *
+     * @return <code>this * x - 1</code>, or <code>null</code> if the wrapped convolution would not be more efficient or the product is not close enough to one.
+     *
+     * @since 1.8.3
+     */
+
+    public ApfloatImpl multiplySubtractOne(ApfloatImpl x, long equalDigits)
+        throws ApfloatRuntimeException;
+
     /**
      * Returns if this <code>ApfloatImpl</code> is "short". Typically <code>ApfloatImpl</code>
      * is "short" if its mantissa fits in one machine word. If the apfloat is "short",
@@ -154,6 +177,18 @@ public interface ApfloatImpl
     public ApfloatImpl precision(long precision)
         throws ApfloatRuntimeException;
 
+    /**
+     * Pins the data of this <code>ApfloatImpl</code>, so that transforms of it
+     * can be cached and reused when it is multiplied repeatedly.
+     *
+     * @see DataStorage#pin()
+     *
+     * @since 1.8.3
+     */
+
+    public void pin()
+        throws ApfloatRuntimeException;
+
     /**
      * Returns the scale of this <code>ApfloatImpl</code>.
      *
@@ -24,7 +24,7 @@ package org.apfloat.spi;
  *
  * @see ConvolutionStrategy
  *
- * @version 1.0
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -43,4 +43,29 @@ public interface ConvolutionBuilder
      */
 
     public ConvolutionStrategy createConvolution(int radix, long size1, long size2, long resultSize);
+
+    /**
+     * Returns a wrapped convolution strategy, which performs a cyclic
+     * convolution of length at least <code>resultSize</code>. The part of
+     * the product that does not fit in the cyclic convolution wraps around
+     * and is added to the most significant elements of the result. This can
+     * be used for calculating a middle product, when the most significant
+     * part of the product is known in advance.<p>
+     *
+     * The result of the returned strategy has <code>n + 2</code> elements,
+     * where <code>n</code> is the length of the cyclic convolution, and its
+     * value is congruent to <code>x * y * base<sup>n + 1 - size1 - size2</sup></code>
+     * modulo <code>base<sup>n</sup> - 1</code>.
+     *
+     * @param radix The radix that will be used.
+     * @param size1 Length of first data set.
+     * @param size2 Length of second data set.
+     * @param resultSize Minimum length of the cyclic convolution. Must not be less than <code>size1</code> or <code>size2</code>.
+     *
+     * @return A suitable object for performing the wrapped convolution, or <code>null</code> if it would not be more efficient than the full convolution.
+     *
+     * @since 1.8.3
+     */
+
+    public ConvolutionStrategy createWrappedConvolution(int radix, long size1, long size2, long resultSize);
 }
@@ -19,6 +19,11 @@
 package org.apfloat.spi;
 
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apfloat.ApfloatRuntimeException;
 
@@ -38,7 +43,7 @@ import org.apfloat.ApfloatRuntimeException;
  * iterators over non-overlapping parts is permitted. Invoking
  * other methods must generally be externally synchronized.
  *
- * @version 1.8.1
+ * @version 1.8.3
  * @author Mikko Tommila
  */
 
@@ -815,6 +820,133 @@ public abstract class DataStorage
         }
     }
 
+    /**
+     * Pins this data storage, so that transforms of its data can be cached
+     * with {@link #putCachedTransform(Object,DataStorage)} and found later
+     * with {@link #getCachedTransform(Object)}. Pinning applies to the whole
+     * top-level data storage, including all its subsequences.
+     *
+     * @exception IllegalStateException If this data storage is not read-only.
+     *
+     * @since 1.8.3
+     */
+
+    public final void pin()
+        throws IllegalStateException
+    {
+        if (!isReadOnly())
+        {
+            throw new IllegalStateException("Cannot pin a writable object");
+        }
+
+        if (this.originalDataStorage == null)
+        {
+            synchronized (this)
+            {
+                if (this.transforms == null)
+                {
+                    this.transforms = new ConcurrentHashMap<List<Object>, SoftReference<DataStorage>>();
+                }
+            }
+        }
+        else
+        {
+            this.originalDataStorage.pin();
+        }
+    }
+
+    /**
+     * Returns if this data storage is pinned.
+     *
+     * @return <code>true</code> if this data storage is pinned, otherwise <code>false</code>.
+     *
+     * @since 1.8.3
+     */
+
+    public final boolean isPinned()
+    {
+        return (getTransforms() != null);
+    }
+
+    /**
+     * Gets a cached transform of the data of this data storage.
+     * The cache is specific to the offset and size of this (sub)sequence.
+     *
+     * @param key Identifies the transform, e.g. the transform algorithm, length and modulus.
+     *
+     * @return The cached transform, or <code>null</code> if this data storage is not pinned or the transform is not cached.
+     *
+     * @since 1.8.3
+     */
+
+    public final DataStorage getCachedTransform(Object key)
+        throws ApfloatRuntimeException
+    {
+        ConcurrentMap<List<Object>, SoftReference<DataStorage>> transforms = getTransforms();
+        if (transforms == null)
+        {
+            return null;
+        }
+        SoftReference<DataStorage> reference = transforms.get(getTransformKey(key));
+        return (reference == null ? null : reference.get());
+    }
+
+    /**
+     * Caches a transform of the data of this data storage, if this data storage is pinned.
+     * The transform should be read-only, as it can be used concurrently by multiple threads.
+     *
+     * @param key Identifies the transform, e.g. the transform algorithm, length and modulus.
+     * @param transform The transformed data.
+     *
+     * @since 1.8.3
+     */
+
+    public final void putCachedTransform(Object key, DataStorage transform)
+        throws ApfloatRuntimeException
+    {
+        ConcurrentMap<List<Object>, SoftReference<DataStorage>> transforms = getTransforms();
+        if (transforms != null)
+        {
+            transforms.put(getTransformKey(key), new SoftReference<DataStorage>(transform));
+        }
+    }
+
+    /**
+     * Releases the resources of this data storage, so that they can be
+     * reused by other data storages. For example the array of a memory
+     * data storage is returned to a pool of arrays. The data storage, its
+     * subsequences or any array accesses to its data must not be used in
+     * any way after this method has been called.<p>
+     *
+     * Nothing is done if this data storage is a subsequence of another data
+     * storage, or if it is read-only, since the data may then still be in use.
+     *
+     * @since 1.8.3
+     */
+
+    public final void release()
+        throws ApfloatRuntimeException
+    {
+        if (this.originalDataStorage == null && !this.isReadOnly)
+        {
+            implRelease();
+        }
+    }
+
+    /**
+     * Releases the resources of this data storage.
+     * The default implementation does nothing.
+     *
+     * @see #release()
+     *
+     * @since 1.8.3
+     */
+
+    protected void implRelease()
+        throws ApfloatRuntimeException
+    {
+    }
+
     /**
      * Gets an array access to the data of this data storage when
      * the data is treated as a linear block.
@@ -1172,6 +1304,17 @@ public abstract class DataStorage
         }
     }
 
+    private ConcurrentMap<List<Object>, SoftReference<DataStorage>> getTransforms()
+    {
+        return (this.originalDataStorage == null ? this.transforms : this.originalDataStorage.getTransforms());
+    }
+
+    private List<Object> getTransformKey(Object key)
+        throws ApfloatRuntimeException
+    {
+        return Arrays.asList(key, getOffset(), getSize());
+    }
+
     private static final long serialVersionUID = 1862028601696578467L;
 
     private long offset;
@@ -1179,4 +1322,5 @@ public abstract class DataStorage
     private DataStorage originalDataStorage;
     private boolean isReadOnly;
     private boolean isSubsequenced;
+    private transient volatile ConcurrentMap<List<Object>, SoftReference<DataStorage>> transforms;
 }
@@ -0,0 +1,170 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.spi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apfloat.ApfloatContext;
+
+/**
+ * Class for sharing a memory budget between concurrent calculations.
+ * The budget is a number of bytes, and it works like a semaphore: before
+ * using a large amount of memory, a calculation reserves the memory from
+ * the governor, and when it's done, it releases the reservation. Calculations
+ * that fit in the budget at the same time can run concurrently.<p>
+ *
+ * By default the budget is the maximum memory block size of the current
+ * {@link ApfloatContext}, so the budget follows any changes to the setting.
+ * Small calculations, for which waiting or using disk-based storage would not
+ * make sense, can account for their memory without checking the budget, so
+ * that the large calculations see the memory that is really available.<p>
+ *
+ * This class is thread-safe.
+ *
+ * @see ApfloatContext#getMemoryGovernor()
+ * @see ApfloatContext#getMaxMemoryBlockSize()
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class MemoryGovernor
+{
+    /**
+     * Create a new memory governor with the maximum memory block
+     * size of the current {@link ApfloatContext} as the budget.
+     */
+
+    public MemoryGovernor()
+    {
+        this.budget = -1;
+    }
+
+    /**
+     * Create a new memory governor with the specified budget.
+     *
+     * @param budget The total number of bytes that can be reserved at the same time.
+     *
+     * @exception IllegalArgumentException If the budget is negative.
+     */
+
+    public MemoryGovernor(long budget)
+        throws IllegalArgumentException
+    {
+        if (budget < 0)
+        {
+            throw new IllegalArgumentException("Negative budget: " + budget);
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * Reserve memory, if it fits in the available memory.
+     *
+     * @param size The number of bytes to reserve.
+     *
+     * @return <code>true</code> if the memory was reserved, <code>false</code> if not.
+     */
+
+    public boolean tryReserve(long size)
+    {
+        assert (size >= 0);
+
+        long budget = getBudget(),
+             reserved;
+        do
+        {
+            reserved = this.reserved.get();
+            if (size > budget - reserved)
+            {
+                return false;
+            }
+        } while (!this.reserved.compareAndSet(reserved, reserved + size));
+
+        return true;
+    }
+
+    /**
+     * Reserve memory without checking the budget.
+     * The memory is only accounted for, so the reservation
+     * may exceed the budget.
+     *
+     * @param size The number of bytes to reserve.
+     */
+
+    public void reserve(long size)
+    {
+        assert (size >= 0);
+
+        this.reserved.addAndGet(size);
+    }
+
+    /**
+     * Release memory that was reserved with {@link #tryReserve(long)}
+     * or {@link #reserve(long)}.
+     *
+     * @param size The number of bytes to release.
+     */
+
+    public void release(long size)
+    {
+        assert (size >= 0);
+
+        long reserved = this.reserved.addAndGet(-size);
+
+        assert (reserved >= 0);
+    }
+
+    /**
+     * Get the budget.
+     *
+     * @return The total number of bytes that can be reserved at the same time.
+     */
+
+    public long getBudget()
+    {
+        return (this.budget < 0 ? ApfloatContext.getContext().getMaxMemoryBlockSize() : this.budget);
+    }
+
+    /**
+     * Get the reserved memory.
+     *
+     * @return The number of bytes currently reserved.
+     */
+
+    public long getReserved()
+    {
+        return this.reserved.get();
+    }
+
+    /**
+     * Get the available memory.
+     *
+     * @return The number of bytes that can currently be reserved, at least zero.
+     */
+
+    public long getAvailable()
+    {
+        return Math.max(0, getBudget() - getReserved());
+    }
+
+    private long budget;
+    private AtomicLong reserved = new AtomicLong();
+}
@@ -0,0 +1,80 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import org.apfloat.spi.NTTBuilder;
+import org.apfloat.internal.IntBuilderFactory;
+import org.apfloat.internal.IntNTTBuilder;
+
+/**
+ * Builder factory for vector transform implementations for the <code>int</code> element type.<p>
+ *
+ * The vector classes need the <code>jdk.incubator.vector</code> module, e.g. the
+ * command line option <code>--add-modules jdk.incubator.vector</code>. If the module
+ * is not available, this factory returns the scalar transform implementations of
+ * {@link IntBuilderFactory}, so it can be configured unconditionally.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorBuilderFactory
+    extends IntBuilderFactory
+{
+    /**
+     * Default constructor.
+     */
+
+    public IntVectorBuilderFactory()
+    {
+    }
+
+    @Override
+    public NTTBuilder getNTTBuilder()
+    {
+        return IntVectorBuilderFactory.nttBuilder;
+    }
+
+    /**
+     * Check if the vector transform implementations can be used.
+     *
+     * @return If the <code>jdk.incubator.vector</code> module is available.
+     */
+
+    public static boolean isVectorAvailable()
+    {
+        try
+        {
+            Class.forName("jdk.incubator.vector.IntVector");
+            return true;
+        }
+        catch (ClassNotFoundException cnfe)
+        {
+            return false;
+        }
+        catch (LinkageError le)
+        {
+            return false;
+        }
+    }
+
+    // The vector classes are loaded only if the module is available
+    private static NTTBuilder nttBuilder = (isVectorAvailable() ? new IntVectorNTTBuilder() : new IntNTTBuilder());
+}
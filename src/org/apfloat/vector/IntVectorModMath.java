@@ -0,0 +1,184 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import org.apfloat.internal.IntModMath;
+
+/**
+ * Modulo arithmetic functions for vectors of <code>int</code> data.<p>
+ *
+ * The vector API has no operation for the high bits of a product, so the
+ * products are calculated in <code>long</code> lanes and the <code>int</code>
+ * vectors have the same number of lanes as the preferred <code>long</code>
+ * vectors of the platform. Converting between <code>int</code> and
+ * <code>long</code> lanes is cheap, unlike converting to floating-point.<p>
+ *
+ * Multiplication by a constant uses Shoup's method like
+ * {@link org.apfloat.internal.IntElementaryModMath#modMultiply(int,int,int)}.
+ * Multiplication of two variables uses Barrett reduction with the constant
+ * <code>floor(2<sup>62</sup> / modulus)</code>, where the estimated quotient is
+ * at most two too small.<p>
+ *
+ * The scalar methods inherited from {@link IntModMath} can be used for the
+ * data that does not fill a whole vector.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorModMath
+    extends IntModMath
+{
+    /**
+     * Species of the <code>long</code> vectors used for the products.
+     */
+
+    protected static final VectorSpecies<Long> LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Species of the <code>int</code> data vectors, with as many lanes as {@link #LONG_SPECIES}.
+     */
+
+    protected static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(int.class, VectorShape.forBitSize(LONG_SPECIES.vectorBitSize() / 2));
+
+    /**
+     * Default constructor.
+     */
+
+    public IntVectorModMath()
+    {
+    }
+
+    /**
+     * Modular multiplication of vectors.
+     *
+     * @param a First operand.
+     * @param b Second operand.
+     *
+     * @return <code>a * b % modulus</code> in each lane.
+     */
+
+    public final IntVector modMultiply(IntVector a, IntVector b)
+    {
+        LongVector x = toLong(a).mul(toLong(b)),
+                   q = x.lanewise(VectorOperators.LSHR, 30).mul(this.barrettFactor).lanewise(VectorOperators.LSHR, 32),
+                   r = x.sub(q.mul(this.modulus));
+
+        r = reduce(reduce(r));
+
+        return toInt(r);
+    }
+
+    /**
+     * Modular multiplication of vectors, where the second operand has a precomputed quotient.
+     *
+     * @param a First operand.
+     * @param w Second operand.
+     * @param wPrecomputed The values <code>floor(w * 2<sup>31</sup> / modulus)</code>, as returned by {@link #precompute(int)}.
+     *
+     * @return <code>a * w % modulus</code> in each lane.
+     */
+
+    public final IntVector modMultiply(IntVector a, IntVector w, LongVector wPrecomputed)
+    {
+        IntVector q = toInt(toLong(a).mul(wPrecomputed).lanewise(VectorOperators.LSHR, 31));
+
+        return reduce(a.mul(w).sub(q.mul(this.modulus)));
+    }
+
+    /**
+     * Modular addition of vectors.
+     *
+     * @param a First operand.
+     * @param b Second operand.
+     *
+     * @return <code>(a + b) % modulus</code> in each lane.
+     */
+
+    public final IntVector modAdd(IntVector a, IntVector b)
+    {
+        return reduce(a.add(b));
+    }
+
+    /**
+     * Modular subtraction of vectors. The result is always &gt;= 0.
+     *
+     * @param a First operand.
+     * @param b Second operand.
+     *
+     * @return <code>(a - b + modulus) % modulus</code> in each lane.
+     */
+
+    public final IntVector modSubtract(IntVector a, IntVector b)
+    {
+        IntVector r1 = a.sub(b),
+                  r2 = r1.add(this.modulus);
+
+        return r1.blend(r2, r1.compare(VectorOperators.LT, 0));
+    }
+
+    /**
+     * Set the modulus.
+     *
+     * @param modulus The modulus.
+     */
+
+    @Override
+    public void setModulus(int modulus)
+    {
+        super.setModulus(modulus);
+        this.barrettFactor = (1L << 62) / modulus;
+        this.modulus = modulus;
+    }
+
+    // Values in [0, 2 * modulus) with wrapped around 32-bit arithmetic to [0, modulus)
+    private IntVector reduce(IntVector r1)
+    {
+        IntVector r2 = r1.sub(this.modulus);
+
+        return r2.blend(r1, r2.compare(VectorOperators.LT, 0));
+    }
+
+    private LongVector reduce(LongVector r1)
+    {
+        LongVector r2 = r1.sub(this.modulus);
+
+        return r2.blend(r1, r2.compare(VectorOperators.LT, 0));
+    }
+
+    private static LongVector toLong(IntVector a)
+    {
+        return (LongVector) a.convertShape(VectorOperators.I2L, LONG_SPECIES, 0);
+    }
+
+    private static IntVector toInt(LongVector a)
+    {
+        return (IntVector) a.convertShape(VectorOperators.L2I, INT_SPECIES, 0);
+    }
+
+    private int modulus;
+    private long barrettFactor;
+}
@@ -0,0 +1,150 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import jdk.incubator.vector.IntVector;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ArrayAccess;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.internal.IntNTTConvolutionStepStrategy;
+import org.apfloat.internal.ParallelRunnable;
+import static org.apfloat.internal.IntModConstants.*;
+
+/**
+ * Steps for the six-step or two-pass NTT convolution for the <code>int</code>
+ * element type that use vector operations for data in memory. Data storages
+ * that are not cached are processed with the scalar methods of the superclass.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorNTTConvolutionStepStrategy
+    extends IntNTTConvolutionStepStrategy
+{
+    // Runnable for multiplying or squaring elements in place
+    private class VectorMultiplyInPlaceRunnable
+        implements Runnable
+    {
+        public VectorMultiplyInPlaceRunnable(DataStorage sourceAndDestination, DataStorage source, long offset, long length)
+        {
+            this.sourceAndDestination = sourceAndDestination;
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public void run()
+        {
+            IntVectorModMath vectorMath = IntVectorNTTConvolutionStepStrategy.this.vectorMath;
+            ArrayAccess dest = this.sourceAndDestination.getArray(DataStorage.READ_WRITE, this.offset, (int) this.length),
+                        src = (this.source == null ? dest : this.source.getArray(DataStorage.READ, this.offset, (int) this.length));
+            int[] destData = dest.getIntData(),
+                  srcData = src.getIntData();
+            int destOffset = dest.getOffset(),
+                srcOffset = src.getOffset(),
+                length = (int) this.length,
+                vectorLength = IntVectorModMath.INT_SPECIES.loopBound(length),
+                i = 0;
+
+            for (; i < vectorLength; i += IntVectorModMath.INT_SPECIES.length())
+            {
+                IntVector a = IntVector.fromArray(IntVectorModMath.INT_SPECIES, destData, destOffset + i),
+                          b = IntVector.fromArray(IntVectorModMath.INT_SPECIES, srcData, srcOffset + i);
+                vectorMath.modMultiply(a, b).intoArray(destData, destOffset + i);
+            }
+            for (; i < length; i++)
+            {
+                destData[destOffset + i] = modMultiply(destData[destOffset + i], srcData[srcOffset + i]);
+            }
+
+            if (src != dest)
+            {
+                src.close();
+            }
+            dest.close();
+        }
+
+        private DataStorage sourceAndDestination,
+                            source;
+        private long offset,
+                     length;
+    }
+
+    /**
+     * Default constructor.
+     */
+
+    public IntVectorNTTConvolutionStepStrategy()
+    {
+        this.vectorMath = new IntVectorModMath();
+    }
+
+    @Override
+    protected ParallelRunnable createMultiplyInPlaceParallelRunnable(final DataStorage sourceAndDestination, final DataStorage source, int modulus)
+    {
+        if (!sourceAndDestination.isCached() || !source.isCached())
+        {
+            return super.createMultiplyInPlaceParallelRunnable(sourceAndDestination, source, modulus);
+        }
+
+        final long size = sourceAndDestination.getSize();
+
+        setModulus(MODULUS[modulus]);
+        this.vectorMath.setModulus(MODULUS[modulus]);
+
+        ParallelRunnable parallelRunnable = new ParallelRunnable(size)
+        {
+            @Override
+            public Runnable getRunnable(long offset, long length)
+            {
+                return new VectorMultiplyInPlaceRunnable(sourceAndDestination, source, offset, length);
+            }
+        };
+        return parallelRunnable;
+    }
+
+    @Override
+    protected ParallelRunnable createSquareInPlaceParallelRunnable(final DataStorage sourceAndDestination, int modulus)
+    {
+        if (!sourceAndDestination.isCached())
+        {
+            return super.createSquareInPlaceParallelRunnable(sourceAndDestination, modulus);
+        }
+
+        final long size = sourceAndDestination.getSize();
+
+        setModulus(MODULUS[modulus]);
+        this.vectorMath.setModulus(MODULUS[modulus]);
+
+        ParallelRunnable parallelRunnable = new ParallelRunnable(size)
+        {
+            @Override
+            public Runnable getRunnable(long offset, long length)
+            {
+                return new VectorMultiplyInPlaceRunnable(sourceAndDestination, null, offset, length);
+            }
+        };
+        return parallelRunnable;
+    }
+
+    private IntVectorModMath vectorMath;
+}
@@ -0,0 +1,219 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.IntVector;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ArrayAccess;
+import org.apfloat.internal.IntNTTStepStrategy;
+import org.apfloat.internal.ParallelRunnable;
+import org.apfloat.internal.Scramble;
+import static org.apfloat.internal.IntModConstants.*;
+
+/**
+ * NTT steps for the <code>int</code> element type that use vector operations
+ * for transforming the rows and for multiplying the matrix elements.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorNTTStepStrategy
+    extends IntNTTStepStrategy
+{
+    // Runnable for calculating the row transforms in parallel
+    private class VectorTableFNTRunnable
+        implements Runnable
+    {
+        public VectorTableFNTRunnable(int length, boolean isInverse, ArrayAccess arrayAccess, int[] wTable, long[] wPrecomputedTable, int[] permutationTable)
+        {
+            this.length = length;               // Transform length
+            this.isInverse = isInverse;
+            this.arrayAccess = arrayAccess;
+            this.wTable = wTable;
+            this.wPrecomputedTable = wPrecomputedTable;
+            this.permutationTable = permutationTable;
+        }
+
+        public void run()
+        {
+            int maxI = this.arrayAccess.getLength();
+
+            for (int i = 0; i < maxI; i += this.length)
+            {
+                ArrayAccess arrayAccess = this.arrayAccess.subsequence(i, this.length);
+
+                if (this.isInverse)
+                {
+                    IntVectorNTTStepStrategy.this.vectorFNT.inverseVectorTableFNT(arrayAccess, this.wTable, this.wPrecomputedTable, this.permutationTable);
+                }
+                else
+                {
+                    IntVectorNTTStepStrategy.this.vectorFNT.vectorTableFNT(arrayAccess, this.wTable, this.wPrecomputedTable, this.permutationTable);
+                }
+            }
+        }
+
+        private int length;
+        private boolean isInverse;
+        private ArrayAccess arrayAccess;
+        private int[] wTable;
+        private long[] wPrecomputedTable;
+        private int[] permutationTable;
+    }
+
+    // Runnable for multiplying elements in the matrix
+    private class VectorMultiplyRunnable
+        implements Runnable
+    {
+        public VectorMultiplyRunnable(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, int w, int scaleFactor)
+        {
+            this.arrayAccess = arrayAccess;
+            this.startRow = startRow;
+            this.startColumn = startColumn;
+            this.rows = rows;
+            this.columns = columns;
+            this.w = w;
+            this.scaleFactor = scaleFactor;
+        }
+
+        public void run()
+        {
+            IntVectorModMath vectorMath = IntVectorNTTStepStrategy.this.vectorFNT;
+            int lanes = IntVectorModMath.INT_SPECIES.length(),
+                vectorColumns = IntVectorModMath.INT_SPECIES.loopBound(this.columns);
+            int[] data = this.arrayAccess.getIntData(),
+                  factors = new int[lanes];
+            int position = this.arrayAccess.getOffset();
+            int rowFactor = modPow(this.w, (int) this.startRow);
+            int columnFactor = modPow(this.w, (int) this.startColumn);
+            int rowStartFactor = modMultiply(this.scaleFactor, modPow(rowFactor, (int) this.startColumn));
+
+            for (int i = 0; i < this.rows; i++)
+            {
+                // The lanes hold the factors of consecutive columns and all advance by rowFactor^lanes
+
+                int factor = rowStartFactor,
+                    stepFactor = 1;
+                for (int l = 0; l < lanes; l++)
+                {
+                    factors[l] = factor;
+                    factor = modMultiply(factor, rowFactor);
+                    stepFactor = modMultiply(stepFactor, rowFactor);
+                }
+                IntVector factorVector = IntVector.fromArray(IntVectorModMath.INT_SPECIES, factors, 0),
+                          step = IntVector.broadcast(IntVectorModMath.INT_SPECIES, stepFactor);
+                LongVector stepPrecomputed = LongVector.broadcast(IntVectorModMath.LONG_SPECIES, vectorMath.precompute(stepFactor));
+
+                int j = 0;
+                for (; j < vectorColumns; j += lanes, position += lanes)
+                {
+                    vectorMath.modMultiply(IntVector.fromArray(IntVectorModMath.INT_SPECIES, data, position), factorVector).intoArray(data, position);
+                    factorVector = vectorMath.modMultiply(factorVector, step, stepPrecomputed);
+                }
+
+                factor = factorVector.lane(0);
+                for (; j < this.columns; j++, position++)
+                {
+                    data[position] = modMultiply(data[position], factor);
+                    factor = modMultiply(factor, rowFactor);
+                }
+
+                rowFactor = modMultiply(rowFactor, this.w);
+                rowStartFactor = modMultiply(rowStartFactor, columnFactor);
+            }
+        }
+
+        private ArrayAccess arrayAccess;
+        private int startRow;
+        private int startColumn;
+        private int rows;
+        private int columns;
+        private int w;
+        private int scaleFactor;
+    }
+
+    /**
+     * Default constructor.
+     */
+
+    public IntVectorNTTStepStrategy()
+    {
+        this.vectorFNT = new IntVectorTableFNT();
+    }
+
+    @Override
+    protected ParallelRunnable createMultiplyElementsParallelRunnable(final ArrayAccess arrayAccess, final int startRow, final int startColumn, final int rows, final int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
+        throws ApfloatRuntimeException
+    {
+        setModulus(MODULUS[modulus]);
+        this.vectorFNT.setModulus(MODULUS[modulus]);
+        final int w = (isInverse ?
+                           getInverseNthRoot(PRIMITIVE_ROOT[modulus], length) :
+                           getForwardNthRoot(PRIMITIVE_ROOT[modulus], length));
+        final int scaleFactor = (isInverse ?
+                                     modDivide((int) 1, (int) totalTransformLength) :
+                                     (int) 1);
+
+        ParallelRunnable parallelRunnable = new ParallelRunnable(rows)
+        {
+            @Override
+            public Runnable getRunnable(int strideStartRow, int strideRows)
+            {
+                ArrayAccess subArrayAccess = arrayAccess.subsequence(strideStartRow * columns, strideRows * columns);
+                return new VectorMultiplyRunnable(subArrayAccess, startRow + strideStartRow, startColumn, strideRows, columns, w, scaleFactor);
+            }
+        };
+
+        return parallelRunnable;
+    }
+
+    @Override
+    protected ParallelRunnable createTransformRowsParallelRunnable(final ArrayAccess arrayAccess, final int length, final int count, final boolean isInverse, boolean permute, int modulus)
+        throws ApfloatRuntimeException
+    {
+        this.vectorFNT.setModulus(MODULUS[modulus]);
+        final int[] wTable = (isInverse ?
+                                  IntVectorWTables.getInverseWTable(modulus, length) :
+                                  IntVectorWTables.getWTable(modulus, length));
+        final long[] wPrecomputedTable = (isInverse ?
+                                               IntVectorWTables.getInversePrecomputedWTable(modulus, length) :
+                                               IntVectorWTables.getPrecomputedWTable(modulus, length));
+        final int[] permutationTable = (permute ? Scramble.createScrambleTable(length) : null);
+
+        ParallelRunnable parallelRunnable = new ParallelRunnable(count)
+        {
+            @Override
+            public Runnable getRunnable(int startIndex, int strideCount)
+            {
+                ArrayAccess subArrayAccess = arrayAccess.subsequence(startIndex * length, strideCount * length);
+                return new VectorTableFNTRunnable(length, isInverse, subArrayAccess, wTable, wPrecomputedTable, permutationTable);
+            }
+        };
+
+        return parallelRunnable;
+    }
+
+    private IntVectorTableFNT vectorFNT;
+}
@@ -0,0 +1,218 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.IntVector;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ArrayAccess;
+import org.apfloat.internal.IntScramble;
+
+/**
+ * Fast Number Theoretic Transform that processes the butterflies
+ * of each stage in vectors. The stages where the butterfly distance
+ * is shorter than the vector length are done with scalar arithmetic.
+ * The result is identical to {@link org.apfloat.internal.IntTableFNT}.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorTableFNT
+    extends IntVectorModMath
+{
+    /**
+     * Default constructor.
+     */
+
+    public IntVectorTableFNT()
+    {
+    }
+
+    /**
+     * Forward (Sande-Tukey) fast Number Theoretic Transform.
+     * Data length must be a power of two.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus, as returned by {@link IntVectorWTables#getWTable(int,int)}.
+     * @param wPrecomputedTable The precomputed quotients for <code>wTable</code>, as returned by {@link IntVectorWTables#getPrecomputedWTable(int,int)}.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     */
+
+    public void vectorTableFNT(ArrayAccess arrayAccess, int[] wTable, long[] wPrecomputedTable, int[] permutationTable)
+        throws ApfloatRuntimeException
+    {
+        int nn, offset, istep, mmax, lanes;
+        int[] data;
+
+        data   = arrayAccess.getIntData();
+        offset = arrayAccess.getOffset();
+        nn     = arrayAccess.getLength();
+        lanes  = INT_SPECIES.length();
+
+        assert (nn == (nn & -nn));
+
+        mmax = nn >> 1;
+        while (mmax > 0)
+        {
+            istep = mmax << 1;
+            int stage = nn - istep;
+
+            if (mmax >= lanes)
+            {
+                for (int i = offset; i < offset + nn; i += istep)
+                {
+                    for (int m = 0; m < mmax; m += lanes)
+                    {
+                        int k = i + m,
+                            j = k + mmax;
+                        IntVector a = IntVector.fromArray(INT_SPECIES, data, k),
+                                  b = IntVector.fromArray(INT_SPECIES, data, j),
+                                  w = IntVector.fromArray(INT_SPECIES, wTable, stage + m);
+                        LongVector wPrecomputed = LongVector.fromArray(LONG_SPECIES, wPrecomputedTable, stage + m);
+                        modAdd(a, b).intoArray(data, k);
+                        modMultiply(modSubtract(a, b), w, wPrecomputed).intoArray(data, j);
+                    }
+                }
+            }
+            else
+            {
+                for (int i = offset; i < offset + nn; i += istep)
+                {
+                    for (int m = 0; m < mmax; m++)
+                    {
+                        int k = i + m,
+                            j = k + mmax;
+                        int a = data[k];
+                        int b = data[j];
+                        data[k] = modAdd(a, b);
+                        data[j] = modMultiply(wTable[stage + m], modSubtract(a, b));
+                    }
+                }
+            }
+            mmax >>= 1;
+        }
+
+        if (permutationTable != null)
+        {
+            IntScramble.scramble(data, offset, permutationTable);
+        }
+    }
+
+    /**
+     * Inverse (Cooley-Tukey) fast Number Theoretic Transform.
+     * Data length must be a power of two.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of inverse powers of n:th root of unity <code>w</code> modulo the current modulus, as returned by {@link IntVectorWTables#getInverseWTable(int,int)}.
+     * @param wPrecomputedTable The precomputed quotients for <code>wTable</code>, as returned by {@link IntVectorWTables#getInversePrecomputedWTable(int,int)}.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     */
+
+    public void inverseVectorTableFNT(ArrayAccess arrayAccess, int[] wTable, long[] wPrecomputedTable, int[] permutationTable)
+        throws ApfloatRuntimeException
+    {
+        int nn, offset, istep, mmax, lanes;
+        int[] data;
+
+        data   = arrayAccess.getIntData();
+        offset = arrayAccess.getOffset();
+        nn     = arrayAccess.getLength();
+        lanes  = INT_SPECIES.length();
+
+        assert (nn == (nn & -nn));
+
+        if (permutationTable != null)
+        {
+            IntScramble.scramble(data, offset, permutationTable);
+        }
+
+        mmax = 1;
+        while (nn > mmax)
+        {
+            istep = mmax << 1;
+            int stage = nn - istep;
+
+            if (mmax >= lanes)
+            {
+                for (int i = offset; i < offset + nn; i += istep)
+                {
+                    for (int m = 0; m < mmax; m += lanes)
+                    {
+                        int k = i + m,
+                            j = k + mmax;
+                        IntVector a = IntVector.fromArray(INT_SPECIES, data, k),
+                                  w = IntVector.fromArray(INT_SPECIES, wTable, stage + m);
+                        LongVector wPrecomputed = LongVector.fromArray(LONG_SPECIES, wPrecomputedTable, stage + m);
+                        IntVector wTemp = modMultiply(IntVector.fromArray(INT_SPECIES, data, j), w, wPrecomputed);
+                        modSubtract(a, wTemp).intoArray(data, j);
+                        modAdd(a, wTemp).intoArray(data, k);
+                    }
+                }
+            }
+            else
+            {
+                for (int i = offset; i < offset + nn; i += istep)
+                {
+                    for (int m = 0; m < mmax; m++)
+                    {
+                        int k = i + m,
+                            j = k + mmax;
+                        int wTemp = modMultiply(wTable[stage + m], data[j]);
+                        data[j] = modSubtract(data[k], wTemp);
+                        data[k] = modAdd(data[k], wTemp);
+                    }
+                }
+            }
+            mmax = istep;
+        }
+    }
+
+    /**
+     * Multiply the elements of the data by a constant.
+     *
+     * @param arrayAccess The data array.
+     * @param factor The constant multiplier.
+     */
+
+    public void multiplyElements(ArrayAccess arrayAccess, int factor)
+        throws ApfloatRuntimeException
+    {
+        int[] data = arrayAccess.getIntData();
+        int offset = arrayAccess.getOffset(),
+            length = arrayAccess.getLength(),
+            vectorLength = INT_SPECIES.loopBound(length),
+            i = 0;
+        IntVector w = IntVector.broadcast(INT_SPECIES, factor);
+        LongVector wPrecomputed = LongVector.broadcast(LONG_SPECIES, precompute(factor));
+
+        for (; i < vectorLength; i += INT_SPECIES.length())
+        {
+            modMultiply(IntVector.fromArray(INT_SPECIES, data, offset + i), w, wPrecomputed).intoArray(data, offset + i);
+        }
+        for (; i < length; i++)
+        {
+            data[offset + i] = modMultiply(data[offset + i], factor);
+        }
+    }
+}
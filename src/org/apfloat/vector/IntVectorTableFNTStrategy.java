@@ -0,0 +1,109 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.ArrayAccess;
+import org.apfloat.spi.Util;
+import org.apfloat.internal.ApfloatInternalException;
+import org.apfloat.internal.TransformLengthExceededException;
+import static org.apfloat.internal.IntModConstants.*;
+
+/**
+ * Fast Number Theoretic Transform strategy that uses vector operations
+ * and lookup tables for powers of n:th root of unity.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorTableFNTStrategy
+    extends IntVectorTableFNT
+    implements NTTStrategy
+{
+    /**
+     * Default constructor.
+     */
+
+    public IntVectorTableFNTStrategy()
+    {
+    }
+
+    public void transform(DataStorage dataStorage, int modulus)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize();            // Transform length n
+
+        if (length > MAX_TRANSFORM_LENGTH)
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + length + " > " + MAX_TRANSFORM_LENGTH);
+        }
+        else if (length > Integer.MAX_VALUE)
+        {
+            throw new ApfloatInternalException("Maximum array length exceeded: " + length);
+        }
+
+        setModulus(MODULUS[modulus]);                                       // Modulus
+        int[] wTable = IntVectorWTables.getWTable(modulus, (int) length);
+        long[] wPrecomputedTable = IntVectorWTables.getPrecomputedWTable(modulus, (int) length);
+
+        ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
+
+        vectorTableFNT(arrayAccess, wTable, wPrecomputedTable, null);
+
+        arrayAccess.close();
+    }
+
+    public void inverseTransform(DataStorage dataStorage, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize();            // Transform length n
+
+        if (Math.max(length, totalTransformLength) > MAX_TRANSFORM_LENGTH)
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + Math.max(length, totalTransformLength) + " > " + MAX_TRANSFORM_LENGTH);
+        }
+        else if (length > Integer.MAX_VALUE)
+        {
+            throw new ApfloatInternalException("Maximum array length exceeded: " + length);
+        }
+
+        setModulus(MODULUS[modulus]);                                       // Modulus
+        int[] wTable = IntVectorWTables.getInverseWTable(modulus, (int) length);
+        long[] wPrecomputedTable = IntVectorWTables.getInversePrecomputedWTable(modulus, (int) length);
+
+        ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
+
+        inverseVectorTableFNT(arrayAccess, wTable, wPrecomputedTable, null);
+
+        multiplyElements(arrayAccess, modDivide((int) 1, (int) totalTransformLength));
+
+        arrayAccess.close();
+    }
+
+    public long getTransformLength(long size)
+    {
+        return Util.round2up(size);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.apfloat.vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apfloat.internal.IntModMath;
+import org.apfloat.internal.IntWTables;
+import static org.apfloat.internal.IntModConstants.*;
+
+/**
+ * Helper class for generating and caching the tables of powers of the n:th root
+ * of unity for the vector transforms.<p>
+ *
+ * Vectors load the powers needed by consecutive butterflies in one operation,
+ * so the tables are arranged by transform stage: the powers for the stage where
+ * the butterfly distance is <code>mmax</code> are stored contiguously starting at
+ * index <code>n - 2 * mmax</code>. Element <code>m</code> of the stage is
+ * <code>w<sup>m * n / (2 * mmax)</sup></code>.
+ *
+ * @since 1.8.3
+ * @version 1.8.3
+ * @author Mikko Tommila
+ */
+
+public class IntVectorWTables
+{
+    private IntVectorWTables()
+    {
+        // Default constructor
+    }
+
+    /**
+     * Get a table of powers of n:th root of unity arranged by stage.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The transform length, i.e. n.
+     *
+     * @return The table of powers of the n:th root of unity.
+     */
+
+    public static int[] getWTable(int modulus, int length)
+    {
+        return (int[]) getTable(modulus, length, false, false);
+    }
+
+    /**
+     * Get a table of inverses of powers of n:th root of unity arranged by stage.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The transform length, i.e. n.
+     *
+     * @return The table of inverses of powers of the n:th root of unity.
+     */
+
+    public static int[] getInverseWTable(int modulus, int length)
+    {
+        return (int[]) getTable(modulus, length, true, false);
+    }
+
+    /**
+     * Get the precomputed quotients for the table returned by {@link #getWTable(int,int)}.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The transform length, i.e. n.
+     *
+     * @return The precomputed quotients, see {@link org.apfloat.internal.IntElementaryModMath#precompute(int)}.
+     */
+
+    public static long[] getPrecomputedWTable(int modulus, int length)
+    {
+        return (long[]) getTable(modulus, length, false, true);
+    }
+
+    /**
+     * Get the precomputed quotients for the table returned by {@link #getInverseWTable(int,int)}.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The transform length, i.e. n.
+     *
+     * @return The precomputed quotients, see {@link org.apfloat.internal.IntElementaryModMath#precompute(int)}.
+     */
+
+    public static long[] getInversePrecomputedWTable(int modulus, int length)
+    {
+        return (long[]) getTable(modulus, length, true, true);
+    }
+
+    private static Object getTable(int modulus, int length, boolean isInverse, boolean isPrecomputed)
+    {
+        List<Integer> key = Arrays.asList((isInverse ? 1 : 0) + (isPrecomputed ? 2 : 0), modulus, length);
+        Object table = IntVectorWTables.cache.get(key);
+        // Do not synchronize, multiple threads may do this at the same time, but only one gets to put the value in the cache
+        if (table == null)
+        {
+            int[] wTable = (isInverse ?
+                            IntWTables.getInverseWTable(modulus, length) :
+                            IntWTables.getWTable(modulus, length));
+            int[] stageTable = new int[length];
+            for (int mmax = length >> 1, r = 1; mmax > 0; mmax >>= 1, r <<= 1)
+            {
+                for (int m = 0, offset = length - 2 * mmax; m < mmax; m++)
+                {
+                    stageTable[offset + m] = wTable[m * r];
+                }
+            }
+            if (isPrecomputed)
+            {
+                IntModMath instance = new IntModMath();
+                instance.setModulus(MODULUS[modulus]);
+                long[] precomputedTable = new long[length];
+                for (int i = 0; i < length; i++)
+                {
+                    precomputedTable[i] = instance.precompute(stageTable[i]);
+                }
+                table = precomputedTable;
+            }
+            else
+            {
+                table = stageTable;
+            }
+            // Check if another thread already put the table in the cache; if so then use it
+            Object value = IntVectorWTables.cache.putIfAbsent(key, table);
+            if (value != null)
+            {
+                // Another thread did put the value in the cache so use it
+                table = value;
+            }
+        }
+        return table;
+    }
+
+    // With inverses, precomputed tables, three moduli and lengths being powers of two, the theoretical maximum map size is 4 * 3 * 30 = 360 entries
+    private static ConcurrentMap<List<Integer>, Object> cache = new ConcurrentSoftHashMap<List<Integer>, Object>();
+}
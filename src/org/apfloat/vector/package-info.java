@@ -0,0 +1,36 @@
+/*
+ * Apfloat arbitrary precision arithmetic library
+ * Copyright (C) 2002-2017  Mikko Tommila
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+/**
+Transforms that use the vector API for SIMD instructions.<p>
+
+This package contains Number-Theoretic Transform implementations for the
+<code>int</code> element type that process the butterflies of the transform,
+the element-wise multiplications of the convolution and the matrix element
+multiplications of the six-step transform in vectors, using the incubating
+<code>jdk.incubator.vector</code> module. The products are calculated in
+<code>long</code> lanes: multiplications by the powers of the root of unity use
+precomputed quotients and the element-wise multiplications use Barrett reduction.<p>
+
+To use the vector transforms, set the builder factory to
+{@link org.apfloat.vector.IntVectorBuilderFactory} and run the JVM with
+<code>--add-modules jdk.incubator.vector</code>. Without the module the
+builder factory falls back to the scalar implementations.
+*/
+
+package org.apfloat.vector;